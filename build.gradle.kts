@@ -34,6 +34,9 @@
 //        .\gradlew allureServe
 //              EINMALIG>>   .\gradlew downloadAllure
 //        .\gradlew checkstyleMain checkstyleTest spotbugsMain spotbugsTest
+//        .\gradlew jmh [-Djmh=UriHelper]
+//        .\gradlew perfTest [-Dperf.rps=200 -Dperf.dauer=2m -Dperf.trainer.latenz=80ms -Dperf.trainer.fehlerquote=0.05]
+//        .\gradlew datagen [-Ddatagen.anzahl=2000000 -Ddatagen.seed=7 -Ddatagen.truncate=true]
 //        .\gradlew sonar
 //        .\gradlew buildHealth
 //        .\gradlew reason --id com.fasterxml.jackson.core:jackson-annotations:...
@@ -166,6 +169,10 @@ plugins {
     // https://github.com/jk1/Gradle-License-Report
     alias(libs.plugins.licenseReport)
 
+    // Microbenchmarks im Source Set src/jmh/java
+    // https://github.com/melix/jmh-gradle-plugin
+    alias(libs.plugins.jmh)
+
     // https://github.com/gradle-dependency-analyze/gradle-dependency-analyze
     // https://github.com/jaredsburrows/gradle-license-plugin
     // https://github.com/hierynomus/license-gradle-plugin
@@ -222,6 +229,25 @@ configurations {
     }
 }
 
+// Lasttest mit eingebettetem Stub fuer "trainer" im Source Set src/perfTest/java
+val perfTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+    // nur SqlBudget aus src/test/java, damit z.B. @TestConfiguration nicht beim Component Scan gefunden wird
+    java.srcDir("src/test/java")
+    java.include("com/acme/fussballverein/perf/**", "com/acme/fussballverein/metrics/SqlBudget.java")
+}
+configurations[perfTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[perfTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+// Generator fuer synthetische Testdaten im Source Set src/datagen/java
+val datagen: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[datagen.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[datagen.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 /* ktlint-disable comment-spacing */
 @Suppress("CommentSpacing")
 // https://docs.gradle.org/current/userguide/java_library_plugin.html#sec:java_library_separation
@@ -260,9 +286,16 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-hateoas")
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    // 2nd-Level-Cache fuer Hibernate mit Caffeine als JCache-Implementierung
+    implementation("org.hibernate.orm:hibernate-jcache")
+    implementation("com.github.ben-manes.caffeine:jcache")
+    // Statistik von Hibernate als Metriken hibernate.*, siehe HibernateMetricsAutoConfiguration
+    implementation("org.hibernate.orm:hibernate-micrometer")
     // implementation(libs.crac)
 
-    runtimeOnly("org.postgresql:postgresql")
+    // CopyManager fuer den CSV-Import mit COPY FROM STDIN
+    implementation("org.postgresql:postgresql")
     runtimeOnly("mysql:mysql-connector-java")
     runtimeOnly("com.oracle.database.jdbc:ojdbc11")
     runtimeOnly("com.h2database:h2")
@@ -287,6 +320,12 @@ dependencies {
     implementation("org.springframework.security:spring-security-crypto")
     implementation("org.springframework.boot:spring-boot-starter-mail")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    // Aspekte fuer @Timed (TimedAspect in MetricsConfig) und fuer RepositoryPhase
+    implementation("org.springframework.boot:spring-boot-starter-aop")
+    // Circuit Breaker und Bulkhead fuer den Zugriff auf "trainer"
+    // https://resilience4j.readme.io/docs/getting-started-3
+    implementation(libs.resilience4jSpringBoot)
+    implementation(libs.resilience4jReactor)
     // https://docs.spring.io/spring-boot/docs/current/reference/html/features.html#features.docker-compose
     //developmentOnly("org.springframework.boot:spring-boot-docker-compose")
 
@@ -331,6 +370,17 @@ dependencies {
     //testImplementation("org.springframework.security:spring-security-test")
     // mock() fuer record
     testImplementation("org.mockito:mockito-inline")
+    // PostgreSQL fuer Integrationstests, z.B. Ausfuehrungsplaene mit den Trigram-Indexen
+    // https://www.testcontainers.org/modules/databases/postgres
+    testImplementation("org.testcontainers:junit-jupiter")
+    testImplementation("org.testcontainers:postgresql")
+    // @ServiceConnection fuer den Container bei @SpringBootTest, z.B. SqlBudgetTest
+    testImplementation("org.springframework.boot:spring-boot-testcontainers")
+
+    // MockHttpServletRequest fuer die Benchmarks
+    jmh("org.springframework:spring-test")
+    // Latenz-Perzentile beim Lasttest
+    "perfTestImplementation"(libs.hdrHistogram)
 
     // https://github.com/tbroyer/gradle-errorprone-plugin
     errorprone(libs.errorprone)
@@ -412,6 +462,87 @@ tasks.compileTestJava {
     options.errorprone.errorproneArgs.add("-Xep:VariableNameSameAsType:OFF")
 }
 
+// https://github.com/melix/jmh-gradle-plugin#configuration-options
+// Ergebnisse als JSON, um Durchsatz und Allokationsrate ("gc"-Profiler) zwischen Releases zu vergleichen
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    System.getProperty("jmh")?.let { includes = listOf(it) }
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    if (enablePreview != null) {
+        jvmArgsAppend = listOf(enablePreview)
+    }
+}
+
+tasks.named<JavaCompile>("compileJmhJava") {
+    if (enablePreview != null) {
+        options.compilerArgs.add(enablePreview)
+    }
+    // Error Prone nicht fuer den durch JMH generierten Code
+    options.errorprone.isEnabled = false
+}
+
+tasks.named<JavaCompile>(perfTest.compileJavaTaskName) {
+    if (enablePreview != null) {
+        options.compilerArgs.add(enablePreview)
+    }
+}
+
+// Anwendung und Stub fuer "trainer" im selben Prozess mit einer lokalen PostgreSQL-Instanz wie bei bootRun
+tasks.register<JavaExec>("perfTest") {
+    group = "verification"
+    description = "Lasttest mit eingebettetem Stub fuer trainer und HdrHistogram-Perzentilen"
+    classpath = perfTest.runtimeClasspath
+    mainClass = "com.acme.fussballverein.perf.PerfTest"
+    if (enablePreview != null) {
+        jvmArgs(enablePreview)
+    }
+
+    // -Dperf.* und -Dspring.* an den Lasttest bzw. an die Anwendung durchreichen
+    System.getProperties().stringPropertyNames()
+        .filter { it.startsWith("perf.") || it.startsWith("spring.") }
+        .forEach { systemProperty(it, System.getProperty(it)) }
+    mapOf(
+        "spring.datasource.url" to "jdbc:postgresql://localhost/fussballverein",
+        "spring.datasource.username" to "fussballverein",
+        "spring.datasource.password" to "p",
+    ).forEach { (key, defaultValue) -> systemProperty(key, System.getProperty(key) ?: defaultValue) }
+    // HTTP ohne TLS, damit der Lastgenerator kein Zertifikat benoetigt
+    systemProperty("server.ssl.enabled", "false")
+    systemProperty("server.http2.enabled", "false")
+    systemProperty("server.port", "0")
+    systemProperty("LOG_PATH", "./build/log")
+    // "trainer" ist der eingebettete Stub, siehe HttpClientConfig
+    environment("TRAINER_SERVICE_HOST", "localhost")
+    environment("TRAINER_SERVICE_PORT", System.getProperty("perf.trainer.port") ?: "8089")
+}
+
+tasks.named<JavaCompile>(datagen.compileJavaTaskName) {
+    if (enablePreview != null) {
+        options.compilerArgs.add(enablePreview)
+    }
+}
+
+// deterministische Testdaten mit COPY in die lokale PostgreSQL-Instanz laden
+tasks.register<JavaExec>("datagen") {
+    group = "application"
+    description = "Synthetische Fussballvereine und Mannschaften in grosser Anzahl laden"
+    classpath = datagen.runtimeClasspath
+    mainClass = "com.acme.fussballverein.datagen.DatenGenerator"
+    if (enablePreview != null) {
+        jvmArgs(enablePreview)
+    }
+
+    // -Ddatagen.* an den Generator durchreichen
+    System.getProperties().stringPropertyNames()
+        .filter { it.startsWith("datagen.") }
+        .forEach { systemProperty(it, System.getProperty(it)) }
+}
+
 tasks.named<BootJar>("bootJar") {
     doLast {
         println("")
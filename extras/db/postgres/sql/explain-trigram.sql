@@ -0,0 +1,52 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Pruefen, ob die Teilstring-Suche die Trigram-Indexe aus V1.2__Trigram.sql verwendet:
+--     docker compose exec postgres bash
+--         psql --dbname=fussballverein --username=fussballverein --file=/sql/explain-trigram.sql
+-- Erwartet wird jeweils "Bitmap Index Scan on fussballverein_..._trgm_idx" statt "Seq Scan on fussballverein".
+-- Die Testdaten werden in einer Transaktion angelegt und am Ende per ROLLBACK wieder entfernt.
+-- Automatisiert fuer die Suche nach Namen: TrigramIndexTest mit Testcontainers (./gradlew test -Dtest=query)
+
+BEGIN;
+
+-- 1 Mio. Fussballvereine mit eindeutigen Namen und Emailadressen
+INSERT INTO fussballverein (id, version, name, email, gruendungsdatum, plz, telefonnummer, erzeugt, aktualisiert)
+SELECT gen_random_uuid(),
+       0,
+       'Verein ' || md5(n::text),
+       'verein' || n || '@test.de',
+       date '1900-01-01' + (n % 40000),
+       lpad((n % 100000)::text, 5, '0'),
+       '0721 ' || lpad(n::text, 7, '0'),
+       now(),
+       now()
+FROM   generate_series(1, 1000000) AS n;
+
+ANALYZE fussballverein;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM fussballverein WHERE lower(name) LIKE '%' || lower('ABCDEF') || '%';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM fussballverein WHERE lower(email) LIKE '%' || lower('ein4242') || '%';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM fussballverein WHERE lower(plz) LIKE '%' || lower('4242') || '%';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM fussballverein WHERE lower(telefonnummer) LIKE '%' || lower('0424242') || '%';
+
+ROLLBACK;
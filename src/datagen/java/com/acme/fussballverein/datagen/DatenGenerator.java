@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.datagen;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.function.BiConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Synthetische Testdaten in großer Anzahl für das Schema aus <code>V1.0__Create.sql</code> erzeugen und mit
+ * <code>COPY FROM STDIN</code> laden. Bei gleichem Seed entstehen identische Daten, so dass Benchmarks und
+ * Ausführungspläne auf verschiedenen Rechnern vergleichbar sind.
+ * <p>
+ * Konfiguration durch System Properties, z.B.
+ * <code>.\gradlew datagen -Ddatagen.anzahl=2000000 -Ddatagen.seed=7 -Ddatagen.truncate=true</code>.
+ * </p>
+ */
+public final class DatenGenerator {
+    private static final String COPY_FUSSBALLVEREIN = """
+        COPY fussballverein (id, version, name, email, gruendungsdatum, plz, telefonnummer, erzeugt, aktualisiert,
+                             trainer_id)
+        FROM STDIN WITH (FORMAT csv)
+        """;
+    private static final String COPY_MANNSCHAFT = """
+        COPY mannschaft (id, jugend, anzahl_mitglieder, fussballverein_id, idx)
+        FROM STDIN WITH (FORMAT csv)
+        """;
+    // Anzahl Vereine, deren CSV-Zeilen gemeinsam an PostgreSQL gesendet werden
+    private static final int BLOCK = 10_000;
+    private static final int FORTSCHRITT = 500_000;
+    private static final long NANOS_PRO_MILLI = 1_000_000L;
+
+    private DatenGenerator() {
+    }
+
+    /**
+     * Die Testdaten erzeugen und laden.
+     *
+     * @param args wird nicht ausgewertet
+     * @throws SQLException Fehler beim Laden
+     */
+    public static void main(final String... args) throws SQLException {
+        final var anzahl = Long.parseLong(System.getProperty("datagen.anzahl", "1000000"));
+        final var seed = Long.parseLong(System.getProperty("datagen.seed", "42"));
+        final var truncate = Boolean.parseBoolean(System.getProperty("datagen.truncate", "false"));
+        final var url = System.getProperty("datagen.url", "jdbc:postgresql://localhost/fussballverein");
+        final var username = System.getProperty("datagen.username", "fussballverein");
+        final var password = System.getProperty("datagen.password", "p");
+        System.out.printf("datagen: %d Fussballvereine, seed=%d, truncate=%b, url=%s%n", anzahl, seed, truncate, url);
+
+        final var generator = new VereinGenerator(seed);
+        try (var connection = DriverManager.getConnection(url, username, password)) {
+            connection.setAutoCommit(false);
+            if (truncate) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("TRUNCATE mannschaft, fussballverein");
+                }
+            }
+
+            final var start = System.nanoTime();
+            laden(connection, COPY_FUSSBALLVEREIN, anzahl, "Fussballvereine", generator::verein);
+            laden(connection, COPY_MANNSCHAFT, anzahl, "Mannschaften", generator::mannschaften);
+            connection.commit();
+
+            // aktuelle Statistiken fuer den Query-Optimierer
+            connection.setAutoCommit(true);
+            try (var statement = connection.createStatement()) {
+                statement.execute("ANALYZE fussballverein");
+                statement.execute("ANALYZE mannschaft");
+            }
+            System.out.printf("datagen: fertig nach %d ms%n", (System.nanoTime() - start) / NANOS_PRO_MILLI);
+        }
+    }
+
+    private static void laden(
+        final Connection connection,
+        final String sql,
+        final long anzahl,
+        final String tabelle,
+        final BiConsumer<Long, StringBuilder> zeilen
+    ) throws SQLException {
+        final var copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        final var sb = new StringBuilder(BLOCK * 160);
+        try {
+            for (long nr = 0; nr < anzahl; nr++) {
+                zeilen.accept(nr, sb);
+                if ((nr + 1) % BLOCK == 0) {
+                    senden(copyIn, sb);
+                }
+                if ((nr + 1) % FORTSCHRITT == 0) {
+                    System.out.printf("datagen: %s fuer %d Fussballvereine%n", tabelle, nr + 1);
+                }
+            }
+            senden(copyIn, sb);
+            System.out.printf("datagen: %d Zeilen in %s geladen%n", copyIn.endCopy(), tabelle);
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void senden(final CopyIn copyIn, final StringBuilder sb) throws SQLException {
+        if (sb.isEmpty()) {
+            return;
+        }
+        final var bytes = sb.toString().getBytes(UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        sb.setLength(0);
+    }
+}
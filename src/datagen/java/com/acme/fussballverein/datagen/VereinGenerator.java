@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.datagen;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.entity.Mannschaft;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Deterministischer Generator für Fussballvereine und ihre Mannschaften. Jeder Verein wird nur aus dem Seed und
+ * seiner laufenden Nummer erzeugt, so dass Vereine und Mannschaften in getrennten Durchläufen ohne Zwischenspeicher
+ * identisch erzeugt werden können.
+ */
+final class VereinGenerator {
+    // Orte mit ihrem PLZ-Bereich, absteigend nach Haeufigkeit sortiert
+    private static final List<String> ORTE = List.of(
+        "Berlin:10", "Hamburg:20", "München:80", "Köln:50", "Frankfurt:60", "Stuttgart:70", "Düsseldorf:40",
+        "Leipzig:04", "Dortmund:44", "Essen:45", "Bremen:28", "Dresden:01", "Hannover:30", "Nürnberg:90",
+        "Duisburg:47", "Bochum:44", "Wuppertal:42", "Bielefeld:33", "Bonn:53", "Münster:48", "Mannheim:68",
+        "Karlsruhe:76", "Augsburg:86", "Wiesbaden:65", "Mönchengladbach:41", "Gelsenkirchen:45", "Aachen:52",
+        "Braunschweig:38", "Kiel:24", "Chemnitz:09", "Halle:06", "Magdeburg:39", "Freiburg:79", "Krefeld:47",
+        "Mainz:55", "Lübeck:23", "Erfurt:99", "Oberhausen:46", "Rostock:18", "Kassel:34", "Hagen:58",
+        "Potsdam:14", "Saarbrücken:66", "Hamm:59", "Ludwigshafen:67", "Oldenburg:26", "Osnabrück:49",
+        "Leverkusen:51", "Heidelberg:69", "Darmstadt:64", "Solingen:42", "Regensburg:93", "Paderborn:33",
+        "Ingolstadt:85", "Würzburg:97", "Ulm:89", "Heilbronn:74", "Pforzheim:75", "Göttingen:37", "Bottrop:46",
+        "Trier:54", "Recklinghausen:45", "Reutlingen:72", "Bremerhaven:27", "Koblenz:56", "Bergisch Gladbach:51",
+        "Jena:07", "Remscheid:42", "Erlangen:91", "Moers:47", "Siegen:57", "Hildesheim:31", "Salzgitter:38",
+        "Bruchsal:76", "Rheinsheim:76", "Philippsburg:76", "Ettlingen:76", "Rastatt:76", "Baden Baden:76"
+    );
+    private static final List<String> PRAEFIXE = List.of(
+        "SV", "FC", "TSV", "SC", "VfB", "VfL", "TuS", "SpVgg", "FV", "SG", "TV", "VfR", "SSV", "ASV", "DJK", "FSV"
+    );
+    private static final List<String> ZUSAETZE = List.of(
+        "Eintracht", "Germania", "Borussia", "Rot Weiss", "Blau Weiss", "Viktoria", "Union", "Alemannia",
+        "Fortuna", "Concordia", "Olympia", "Grün Weiss"
+    );
+    private static final List<String> JUGENDEN = List.of(
+        Mannschaft.JUGEND_PATTERN.replaceAll("[()]", "").split("\\|")
+    );
+    private static final int MAX_NAME = 40;
+    private static final int ANZAHL_TRAINER = 20_000;
+    private static final LocalDate ERSTE_GRUENDUNG = LocalDate.of(1860, 1, 1);
+    private static final int GRUENDUNG_TAGE = 160 * 365;
+    private static final LocalDateTime ERSTE_AENDERUNG = LocalDateTime.of(2019, 1, 1, 0, 0);
+    private static final long AENDERUNG_SEKUNDEN = 5L * 365 * 24 * 60 * 60;
+    // unterschiedliche Zufallsstroeme fuer Vereine, Mannschaften und Trainer
+    private static final long STROM_VEREIN = 1L;
+    private static final long STROM_MANNSCHAFT = 2L;
+    private static final long STROM_TRAINER = 3L;
+
+    private static final Pattern NAME = Pattern.compile(Fussballverein.VEREINSNAME_PATTERN);
+    private static final Pattern PLZ = Pattern.compile(Fussballverein.PLZ_PATTERN);
+    private static final Pattern TELEFON = Pattern.compile(Fussballverein.TELEFON_PATTERN);
+
+    private final long seed;
+    private final Zipf orte = new Zipf(ORTE.size(), 1.0);
+    private final Zipf praefixe = new Zipf(PRAEFIXE.size(), 1.2);
+    // wenige Trainer betreuen viele Vereine
+    private final Zipf trainer = new Zipf(ANZAHL_TRAINER, 1.1);
+
+    VereinGenerator(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Den Verein mit der laufenden Nummer als CSV-Zeile für <code>COPY fussballverein</code> erzeugen.
+     *
+     * @param nr Laufende Nummer
+     * @param sb Puffer, an den die Zeile angehängt wird
+     */
+    void verein(final long nr, final StringBuilder sb) {
+        final var random = strom(STROM_VEREIN, nr);
+        final var id = uuid(random);
+        final var ort = ORTE.get(orte.naechster(random)).split(":");
+        final var name = name(random, ort[0]);
+        final var plz = ort[1] + Integer.toString(1000 + random.nextInt(1000)).substring(1);
+        final var telefonnummer = telefonnummer(random);
+        final var gruendungsdatum = ERSTE_GRUENDUNG.plusDays(random.nextInt(GRUENDUNG_TAGE));
+        final var erzeugt = ERSTE_AENDERUNG.plusSeconds(random.nextLong(AENDERUNG_SEKUNDEN));
+        final var aktualisiert = erzeugt.plusSeconds(random.nextLong(AENDERUNG_SEKUNDEN / 5));
+        // 10 % ohne Trainer
+        final var trainerId = random.nextInt(10) == 0 ? null : trainerId(trainer.naechster(random));
+        if (nr < 1000) {
+            pruefen(name, plz, telefonnummer);
+        }
+        csv(sb, id, 0, name, "verein" + nr + "@fussball.de", gruendungsdatum, plz, telefonnummer, erzeugt,
+            aktualisiert, trainerId);
+    }
+
+    /**
+     * Die Mannschaften des Vereins mit der laufenden Nummer als CSV-Zeilen für <code>COPY mannschaft</code> erzeugen.
+     *
+     * @param nr Laufende Nummer des Vereins
+     * @param sb Puffer, an den die Zeilen angehängt werden
+     * @return Anzahl der Mannschaften
+     */
+    int mannschaften(final long nr, final StringBuilder sb) {
+        final var vereinId = uuid(strom(STROM_VEREIN, nr));
+        // eigener Zufallsstrom fuer die Mannschaften, unabhaengig von den Werten des Vereins
+        final var mannschaftRandom = strom(STROM_MANNSCHAFT, nr);
+        final var anzahl = 1 + mannschaftRandom.nextInt(JUGENDEN.size());
+        // jede Jugend hoechstens einmal, beginnend bei einer zufaelligen Jugend
+        final var start = mannschaftRandom.nextInt(JUGENDEN.size());
+        for (var idx = 0; idx < anzahl; idx++) {
+            final var jugend = JUGENDEN.get((start + idx) % JUGENDEN.size());
+            csv(sb, uuid(mannschaftRandom), jugend, 8 + mannschaftRandom.nextInt(23), vereinId, idx);
+        }
+        return anzahl;
+    }
+
+    // Die Startwerte werden gemischt, weil sich die Folgen von SplittableRandom bei Startwerten im Abstand eines
+    // Vielfachen von GOLDEN_GAMMA ueberlappen und dann z.B. doppelte UUIDs entstehen
+    private SplittableRandom strom(final long strom, final long nr) {
+        return new SplittableRandom(mix(mix(seed ^ mix(strom)) + nr));
+    }
+
+    // Finalizer von MurmurHash3, siehe https://github.com/aappleby/smhasher
+    @SuppressWarnings("MagicNumber")
+    private static long mix(final long wert) {
+        var z = wert;
+        z = (z ^ (z >>> 33)) * 0xFF51_AFD7_ED55_8CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CE_B9FE_1A85_EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private String name(final SplittableRandom random, final String ort) {
+        final var sb = new StringBuilder(MAX_NAME + 16).append(PRAEFIXE.get(praefixe.naechster(random)));
+        if (random.nextInt(3) == 0) {
+            sb.append(' ').append(ZUSAETZE.get(random.nextInt(ZUSAETZE.size())));
+        }
+        sb.append(' ').append(ort);
+        return sb.length() <= MAX_NAME ? sb.toString() : sb.substring(0, MAX_NAME).strip();
+    }
+
+    private static String telefonnummer(final SplittableRandom random) {
+        // Vorwahl ohne 0 nach der fuehrenden 0, z.B. 0721 oder 030
+        final var sb = new StringBuilder(16).append('0');
+        final var laengeVorwahl = 1 + random.nextInt(4);
+        for (var i = 0; i < laengeVorwahl; i++) {
+            sb.append((char) ('1' + random.nextInt(9)));
+        }
+        sb.append(' ');
+        final var laengeNummer = 4 + random.nextInt(6);
+        for (var i = 0; i < laengeNummer; i++) {
+            sb.append((char) ('0' + random.nextInt(10)));
+        }
+        return sb.toString();
+    }
+
+    private UUID trainerId(final int rang) {
+        return uuid(strom(STROM_TRAINER, rang));
+    }
+
+    // UUID der Version 4, aber deterministisch aus dem Zufallsstrom
+    private static UUID uuid(final SplittableRandom random) {
+        final var hi = random.nextLong() & 0xFFFF_FFFF_FFFF_0FFFL | 0x0000_0000_0000_4000L;
+        final var lo = random.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L;
+        return new UUID(hi, lo);
+    }
+
+    private static void pruefen(final String name, final String plz, final String telefonnummer) {
+        if (!NAME.matcher(name).matches() || !PLZ.matcher(plz).matches() ||
+            !TELEFON.matcher(telefonnummer).matches()) {
+            throw new IllegalStateException("Ungueltige Testdaten: " + name + ", " + plz + ", " + telefonnummer);
+        }
+    }
+
+    // CSV-Zeile fuer COPY: null als leeres Feld ohne Anfuehrungszeichen
+    private static void csv(final StringBuilder sb, final Object... werte) {
+        for (var i = 0; i < werte.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            if (werte[i] != null) {
+                sb.append('"').append(werte[i]).append('"');
+            }
+        }
+        sb.append('\n');
+    }
+}
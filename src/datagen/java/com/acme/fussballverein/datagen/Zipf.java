@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.datagen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-Verteilung über die Ränge <code>0 .. n-1</code>: Rang <code>k</code> wird mit einer Wahrscheinlichkeit
+ * proportional zu <code>1 / (k + 1)^s</code> gezogen, d.h. wenige Werte sind sehr häufig und viele sind selten.
+ */
+final class Zipf {
+    private final double[] kumuliert;
+
+    /**
+     * Die kumulierten Wahrscheinlichkeiten einmalig berechnen.
+     *
+     * @param n Anzahl der Ränge
+     * @param s Exponent, z.B. 1.0 für Ortsnamen
+     */
+    Zipf(final int n, final double s) {
+        kumuliert = new double[n];
+        var summe = 0.0;
+        for (var k = 0; k < n; k++) {
+            summe += 1.0 / Math.pow(k + 1.0, s);
+            kumuliert[k] = summe;
+        }
+        for (var k = 0; k < n; k++) {
+            kumuliert[k] /= summe;
+        }
+    }
+
+    /**
+     * Einen Rang ziehen.
+     *
+     * @param random Zufallszahlengenerator
+     * @return Rang zwischen 0 und n-1
+     */
+    int naechster(final SplittableRandom random) {
+        final var pos = Arrays.binarySearch(kumuliert, random.nextDouble());
+        return Math.min(pos >= 0 ? pos : -pos - 1, kumuliert.length - 1);
+    }
+}
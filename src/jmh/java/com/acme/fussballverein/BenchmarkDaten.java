@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.entity.Mannschaft;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Testdaten für die Benchmarks, die einem typischen Fussballverein aus der DB entsprechen.
+ */
+public final class BenchmarkDaten {
+    private static final List<String> JUGENDEN = List.of("Bambini", "F", "E", "D", "C", "B", "A");
+
+    private BenchmarkDaten() {
+    }
+
+    /**
+     * Einen gültigen Fussballverein mit ID, Version und Mannschaften erstellen.
+     *
+     * @param nr Laufende Nummer für eindeutige Werte
+     * @param anzahlMannschaften Anzahl der Mannschaften
+     * @return Der Fussballverein
+     */
+    public static Fussballverein fussballverein(final int nr, final int anzahlMannschaften) {
+        final var mannschaften = new ArrayList<Mannschaft>(anzahlMannschaften);
+        final var verein = Fussballverein.builder()
+            .id(new UUID(0L, nr))
+            .version(nr % 10)
+            .name("Sportverein Karlsruhe")
+            .email("verein" + nr + "@acme.de")
+            .gruendungsdatum(LocalDate.of(1920, 5, 1))
+            .plz("76133")
+            .telefonnummer("0721 1234567")
+            .trainerId(new UUID(1L, nr))
+            .erzeugt(LocalDateTime.of(2023, 1, 1, 12, 0))
+            .aktualisiert(LocalDateTime.of(2023, 6, 1, 12, 0))
+            .mannschaften(mannschaften)
+            .build();
+        IntStream.range(0, anzahlMannschaften)
+            .mapToObj(i -> Mannschaft.builder()
+                .id(new UUID(2L, (long) nr * anzahlMannschaften + i))
+                .jugend(JUGENDEN.get(i % JUGENDEN.size()))
+                .anzahlMitglieder(18 + i)
+                .fussballverein(verein)
+                .build())
+            .forEach(mannschaften::add);
+        return verein;
+    }
+
+    /**
+     * Mehrere gültige Fussballvereine erstellen, z.B. für eine Seite bei <code>GET /rest</code>.
+     *
+     * @param anzahl Anzahl der Fussballvereine
+     * @param anzahlMannschaften Anzahl der Mannschaften je Fussballverein
+     * @return Die Fussballvereine
+     */
+    public static List<Fussballverein> fussballvereine(final int anzahl, final int anzahlMannschaften) {
+        return IntStream.range(0, anzahl)
+            .mapToObj(nr -> fussballverein(nr, anzahlMannschaften))
+            .toList();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.entity;
+
+import com.acme.fussballverein.BenchmarkDaten;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark für Bean Validation eines Fussballvereins mit den regulären Ausdrücken für Name, PLZ und Telefonnummer
+ * sowie den Mannschaften.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FussballvereinValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private Fussballverein vereinGueltig;
+    private Fussballverein vereinUngueltig;
+
+    /**
+     * Validator und einen gültigen sowie einen ungültigen Fussballverein erstellen.
+     */
+    @Setup
+    public void setup() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        vereinGueltig = BenchmarkDaten.fussballverein(1, 3);
+        vereinUngueltig = BenchmarkDaten.fussballverein(2, 3);
+        vereinUngueltig.setName("sportverein");
+        vereinUngueltig.setPlz("7613");
+        vereinUngueltig.setTelefonnummer("1234");
+    }
+
+    /**
+     * Den Validator schließen.
+     */
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    /**
+     * Validierung ohne Verletzungen.
+     *
+     * @return Die leere Menge der Verletzungen
+     */
+    @Benchmark
+    public Set<ConstraintViolation<Fussballverein>> gueltig() {
+        return validator.validate(vereinGueltig);
+    }
+
+    /**
+     * Validierung mit 3 Verletzungen einschließlich der Interpolation der Fehlermeldungen.
+     *
+     * @return Die Verletzungen
+     */
+    @Benchmark
+    public Set<ConstraintViolation<Fussballverein>> ungueltig() {
+        return validator.validate(vereinUngueltig);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.rest;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark für die Konvertierung eines DTO aus dem Request-Body in ein Entity-Objekt bei POST und PUT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FussballvereinDTOBenchmark {
+    @Param({"0", "3", "7"})
+    private int anzahlMannschaften;
+
+    private FussballvereinDTO dto;
+
+    /**
+     * DTO mit der gewünschten Anzahl an Mannschaften erstellen.
+     */
+    @Setup
+    public void setup() {
+        final var jugenden = List.of("Bambini", "F", "E", "D", "C", "B", "A");
+        final var mannschaften = jugenden.stream()
+            .limit(anzahlMannschaften)
+            .map(jugend -> new MannschaftDTO(jugend, 18))
+            .toList();
+        dto = new FussballvereinDTO(
+            "Sportverein Karlsruhe",
+            "verein@acme.de",
+            LocalDate.of(1920, 5, 1),
+            "76133",
+            "0721 1234567",
+            UUID.randomUUID(),
+            mannschaften
+        );
+    }
+
+    /**
+     * Konvertierung mit <code>toFussballverein()</code> einschließlich der Rückwärtsverweise der Mannschaften.
+     *
+     * @return Der konvertierte Fussballverein
+     */
+    @Benchmark
+    public Fussballverein toFussballverein() {
+        return dto.toFussballverein();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.rest;
+
+import com.acme.fussballverein.BenchmarkDaten;
+import com.acme.fussballverein.entity.Fussballverein;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.AnnotationLinkRelationProvider;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark für das Erstellen von {@link FussballvereinModel} und die Serialisierung mit Jackson als HAL, wie bei
+ * <code>GET /rest/{id}</code> und <code>GET /rest</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FussballvereinModelBenchmark {
+    private static final String BASE_URI = "https://localhost:8080/rest";
+
+    @Param({"20", "100"})
+    private int seitengroesse;
+
+    private Fussballverein fussballverein;
+    private List<Fussballverein> fussballvereine;
+    private ObjectWriter writer;
+
+    /**
+     * Testdaten und einen ObjectMapper wie bei Spring HATEOAS für HAL erstellen.
+     */
+    @Setup
+    public void setup() {
+        fussballverein = BenchmarkDaten.fussballverein(1, 3);
+        fussballvereine = BenchmarkDaten.fussballvereine(seitengroesse, 3);
+        final var mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .registerModule(new Jackson2HalModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            new AnnotationLinkRelationProvider(),
+            CurieProvider.NONE,
+            MessageResolver.DEFAULTS_ONLY
+        ));
+        writer = mapper.writer();
+    }
+
+    /**
+     * Nur das Model mit dem Link <code>self</code> erstellen.
+     *
+     * @return Das Model
+     */
+    @Benchmark
+    public FussballvereinModel model() {
+        return toModel(fussballverein);
+    }
+
+    /**
+     * Model für einen einzelnen Fussballverein erstellen und als HAL serialisieren.
+     *
+     * @return Der Response-Body
+     * @throws Exception Fehler bei der Serialisierung
+     */
+    @Benchmark
+    public byte[] einzeln() throws Exception {
+        return writer.writeValueAsBytes(toModel(fussballverein));
+    }
+
+    /**
+     * Models für eine Seite von Fussballvereinen erstellen und als HAL-Collection serialisieren.
+     *
+     * @return Der Response-Body
+     * @throws Exception Fehler bei der Serialisierung
+     */
+    @Benchmark
+    public byte[] collection() throws Exception {
+        final var models = fussballvereine.stream()
+            .map(FussballvereinModelBenchmark::toModel)
+            .toList();
+        return writer.writeValueAsBytes(CollectionModel.of(models));
+    }
+
+    private static FussballvereinModel toModel(final Fussballverein verein) {
+        final var model = new FussballvereinModel(verein);
+        model.add(Link.of(BASE_URI + '/' + verein.getId()));
+        return model;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.rest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark für {@link UriHelper#getBaseUri}, das bei jedem Request mit HATEOAS-Links aufgerufen wird.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UriHelperBenchmark {
+    private final UriHelper uriHelper = new UriHelper();
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest requestForwarded;
+
+    /**
+     * Requests ohne und mit Forwarding-Headern eines API-Gateways erstellen.
+     */
+    @Setup
+    public void setup() {
+        request = new MockHttpServletRequest("GET", "/rest");
+        request.setScheme("https");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        request.setQueryString("plz=76133");
+
+        requestForwarded = new MockHttpServletRequest("GET", "/rest");
+        requestForwarded.addHeader("X-Forwarded-Proto", "https");
+        requestForwarded.addHeader("x-forwarded-host", "gateway.acme.de");
+        requestForwarded.addHeader("x-forwarded-prefix", "/fussballverein");
+    }
+
+    /**
+     * Basis-URI ohne Forwarding.
+     *
+     * @return Die Basis-URI
+     */
+    @Benchmark
+    public URI ohneForwarding() {
+        return uriHelper.getBaseUri(request);
+    }
+
+    /**
+     * Basis-URI mit Forwarding durch ein API-Gateway.
+     *
+     * @return Die Basis-URI
+     */
+    @Benchmark
+    public URI mitForwarding() {
+        return uriHelper.getBaseUri(requestForwarded);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.rest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark für das Auswerten des ETags im Header <code>If-Match</code> bei PUT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VersionBenchmark {
+    private final Optional<String> etag = Optional.of("\"42\"");
+    private final Optional<String> etagUngueltig = Optional.of("\"4x2\"");
+    private MockHttpServletRequest request;
+
+    /**
+     * Request für die URI in den Fehlermeldungen erstellen.
+     */
+    @Setup
+    public void setup() {
+        request = new MockHttpServletRequest("PUT", "/rest/00000000-0000-0000-0000-000000000001");
+    }
+
+    /**
+     * Gültiges ETag.
+     *
+     * @return Die Versionsnummer
+     */
+    @Benchmark
+    public int gueltig() {
+        return FussballvereinWriteController.getVersion(etag, request);
+    }
+
+    /**
+     * Ungültiges ETag, d.h. einschließlich NumberFormatException und VersionInvalidException.
+     *
+     * @return Die Exception
+     */
+    @Benchmark
+    public Object ungueltig() {
+        try {
+            return FussballvereinWriteController.getVersion(etagUngueltig, request);
+        } catch (final VersionInvalidException ex) {
+            return ex;
+        }
+    }
+}
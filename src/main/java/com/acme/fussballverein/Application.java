@@ -19,6 +19,7 @@ package com.acme.fussballverein;
 import com.acme.fussballverein.dev.DevConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
@@ -37,6 +38,7 @@ import static org.springframework.hateoas.support.WebStack.WEBMVC;
  */
 @SpringBootApplication(proxyBeanMethods = false)
 @Import({ApplicationConfig.class, DevConfig.class})
+@ConfigurationPropertiesScan
 @EnableHypermediaSupport(type = HAL, stacks = WEBMVC)
 @EnableJpaRepositories
 @EnableWebSecurity
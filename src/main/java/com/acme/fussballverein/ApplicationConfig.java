@@ -5,5 +5,6 @@ package com.acme.fussballverein;
  *
  * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
  */
-final class ApplicationConfig implements com.acme.fussballverein.ThreadConfig, SecurityConfig, HttpClientConfig {
+final class ApplicationConfig
+    implements com.acme.fussballverein.ThreadConfig, SecurityConfig, HttpClientConfig, MetricsConfig {
 }
@@ -16,6 +16,7 @@
  */
 package com.acme.fussballverein;
 
+import com.acme.fussballverein.repository.TrainerReactiveRepository;
 import com.acme.fussballverein.repository.TrainerRestRepository;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientSsl;
@@ -92,6 +93,16 @@ interface HttpClientConfig {
         return proxyFactory.createClient(TrainerRestRepository.class);
     }
 
+    // ohne blockTimeout: die Requests werden auf der Event-Loop von Netty ausgefuehrt
+    @Bean
+    default TrainerReactiveRepository trainerReactiveRepository(final WebClient builder) {
+        final var clientAdapter = WebClientAdapter.forClient(builder);
+        final var proxyFactory = HttpServiceProxyFactory
+            .builder(clientAdapter)
+            .build();
+        return proxyFactory.createClient(TrainerReactiveRepository.class);
+    }
+
     // siehe org.springframework.graphql.client.DefaultHttpGraphQlClientBuilder.DefaultHttpGraphQlClient
     @Bean
     default HttpGraphQlClient graphQlClient(
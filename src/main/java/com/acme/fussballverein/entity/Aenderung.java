@@ -0,0 +1,107 @@
+package com.acme.fussballverein.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+import static jakarta.persistence.EnumType.STRING;
+
+/**
+ * Protokolleintrag für eine Änderung an einem Fußballverein ("Transactional Outbox").
+ * Der Eintrag wird in derselben Transaktion wie die Änderung selbst geschrieben. Die Position wird erst beim
+ * Veröffentlichen vergeben, so dass die Positionen in Commit-Reihenfolge aufsteigend sind.
+ */
+@Entity
+@Table(name = "aenderung")
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Getter
+@Setter
+@ToString
+@Builder
+public class Aenderung {
+    @Id
+    @GeneratedValue
+    @EqualsAndHashCode.Include
+    private UUID id;
+
+    private UUID fussballvereinId;
+
+    @Enumerated(STRING)
+    private AenderungTyp typ;
+
+    @CreationTimestamp
+    private LocalDateTime erzeugt;
+
+    private Long position;
+
+    private LocalDateTime veroeffentlicht;
+
+    // Versionsnummer des Fussballvereins nach der Aenderung
+    private Integer version;
+
+    // kommagetrennte Namen der geaenderten Attribute
+    private String felder;
+
+    /**
+     * Einen neuen, noch nicht veröffentlichten Protokolleintrag erstellen.
+     *
+     * @param typ Art der Änderung.
+     * @param fussballvereinId ID des geänderten Fußballvereins.
+     * @return Der neue Protokolleintrag.
+     */
+    public static Aenderung of(final AenderungTyp typ, final UUID fussballvereinId) {
+        return Aenderung.builder()
+            .typ(typ)
+            .fussballvereinId(fussballvereinId)
+            .build();
+    }
+
+    /**
+     * Einen neuen, noch nicht veröffentlichten Protokolleintrag mit den geänderten Attributen erstellen.
+     *
+     * @param typ Art der Änderung.
+     * @param fussballvereinId ID des geänderten Fußballvereins.
+     * @param version Versionsnummer des Fußballvereins nach der Änderung.
+     * @param felder Namen der geänderten Attribute.
+     * @return Der neue Protokolleintrag.
+     */
+    public static Aenderung of(
+        final AenderungTyp typ,
+        final UUID fussballvereinId,
+        final int version,
+        final Collection<String> felder
+    ) {
+        return Aenderung.builder()
+            .typ(typ)
+            .fussballvereinId(fussballvereinId)
+            .version(version)
+            .felder(String.join(",", felder))
+            .build();
+    }
+
+    /**
+     * Die Namen der geänderten Attribute.
+     *
+     * @return Die Namen der geänderten Attribute oder eine leere Menge, falls sie nicht protokolliert wurden.
+     */
+    public Set<String> felderAlsSet() {
+        return felder == null || felder.isEmpty() ? Set.of() : Set.of(felder.split(","));
+    }
+}
@@ -0,0 +1,21 @@
+package com.acme.fussballverein.entity;
+
+/**
+ * Art einer protokollierten Änderung an einem Fußballverein.
+ */
+public enum AenderungTyp {
+    /**
+     * Der Fußballverein wurde neu angelegt.
+     */
+    ERZEUGT,
+
+    /**
+     * Der Fußballverein wurde aktualisiert.
+     */
+    GEAENDERT,
+
+    /**
+     * Der Fußballverein wurde gelöscht.
+     */
+    GELOESCHT
+}
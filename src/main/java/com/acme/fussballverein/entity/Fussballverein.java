@@ -1,5 +1,6 @@
 package com.acme.fussballverein.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -16,6 +17,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -23,16 +25,21 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.time.LocalDate;
 import static com.acme.fussballverein.entity.Fussballverein.MANNSCHAFT_GRAPH;
 import static jakarta.persistence.CascadeType.PERSIST;
 import static jakarta.persistence.CascadeType.REMOVE;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE;
 
 /**
  * Klasse Fußballverein.
@@ -40,6 +47,8 @@ import static jakarta.persistence.CascadeType.REMOVE;
  */
 @Entity
 @Table(name = "fussballverein")
+@Cacheable
+@Cache(usage = READ_WRITE)
 @NamedEntityGraph(name = MANNSCHAFT_GRAPH, attributeNodes = @NamedAttributeNode("mannschaften"))
 @NoArgsConstructor
 @AllArgsConstructor
@@ -81,10 +90,12 @@ public class Fussballverein {
     @NotBlank
     @NotNull
     @Pattern(regexp = VEREINSNAME_PATTERN)
+    @Size(max = 40)
     private String name;
 
     @Email
     @NotNull
+    @Size(max = 40)
     private String email;
 
     @PastOrPresent
@@ -117,6 +128,7 @@ public class Fussballverein {
         cascade = {PERSIST, REMOVE},
         orphanRemoval = true)
     @OrderColumn(name = "idx", nullable = false)
+    @Cache(usage = READ_WRITE)
     @ToString.Exclude
     private List<Mannschaft> mannschaften;
 
@@ -132,4 +144,69 @@ public class Fussballverein {
         plz = fussballverein.plz;
         telefonnummer = fussballverein.telefonnummer;
     }
+
+    /**
+     * Nur die gesetzten Fussballvereindaten überschreiben, z.B. beim Zusammenführen paralleler Änderungen.
+     *
+     * @param fussballverein Neue Fussballvereindaten, wobei null "unverändert" bedeutet.
+     */
+    public void setNichtNull(final Fussballverein fussballverein) {
+        if (fussballverein.name != null) {
+            name = fussballverein.name;
+        }
+        if (fussballverein.email != null) {
+            email = fussballverein.email;
+        }
+        if (fussballverein.gruendungsdatum != null) {
+            gruendungsdatum = fussballverein.gruendungsdatum;
+        }
+        if (fussballverein.plz != null) {
+            plz = fussballverein.plz;
+        }
+        if (fussballverein.telefonnummer != null) {
+            telefonnummer = fussballverein.telefonnummer;
+        }
+    }
+
+    /**
+     * Namen der Attribute, die {@link #set(Fussballverein)} mit dem übergebenen Objekt ändern würde.
+     *
+     * @param fussballverein Neue Fussballvereindaten.
+     * @return Namen der geänderten Attribute.
+     */
+    public Set<String> unterschiede(final Fussballverein fussballverein) {
+        return vergleichen(fussballverein, false);
+    }
+
+    /**
+     * Namen der Attribute, die {@link #setNichtNull(Fussballverein)} mit dem übergebenen Objekt ändern würde.
+     *
+     * @param fussballverein Neue Fussballvereindaten, wobei null "unverändert" bedeutet.
+     * @return Namen der geänderten Attribute.
+     */
+    public Set<String> unterschiedeNichtNull(final Fussballverein fussballverein) {
+        return vergleichen(fussballverein, true);
+    }
+
+    private Set<String> vergleichen(final Fussballverein fussballverein, final boolean nullUnveraendert) {
+        final var felder = new LinkedHashSet<String>();
+        vergleichen(felder, "name", name, fussballverein.name, nullUnveraendert);
+        vergleichen(felder, "email", email, fussballverein.email, nullUnveraendert);
+        vergleichen(felder, "gruendungsdatum", gruendungsdatum, fussballverein.gruendungsdatum, nullUnveraendert);
+        vergleichen(felder, "plz", plz, fussballverein.plz, nullUnveraendert);
+        vergleichen(felder, "telefonnummer", telefonnummer, fussballverein.telefonnummer, nullUnveraendert);
+        return felder;
+    }
+
+    private static void vergleichen(
+        final Set<String> felder,
+        final String feld,
+        final Object alt,
+        final Object neu,
+        final boolean nullUnveraendert
+    ) {
+        if ((neu != null || !nullUnveraendert) && !Objects.equals(alt, neu)) {
+            felder.add(feld);
+        }
+    }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.graphql;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Value-Klasse für das Resultat je Fussballverein, wenn an der GraphQL-Schnittstelle mehrere Fussballvereine
+ * angelegt wurden.
+ *
+ * @param index Position des Fussballvereins in der Eingabe
+ * @param id ID des neu angelegten Fussballvereins oder null
+ * @param status CREATED, INVALID oder EMAIL_EXISTS
+ * @param fehler Die Fehlermeldungen oder eine leere Liste
+ */
+record CreateManyPayload(int index, UUID id, String status, List<String> fehler) {
+}
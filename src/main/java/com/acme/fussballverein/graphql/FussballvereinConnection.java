@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.graphql;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.service.Delta;
+import com.acme.fussballverein.service.DeltaCursor;
+import com.acme.fussballverein.service.Seite;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Value-Klasse für eine Seite von Fussballvereinen gemäß der Relay-Spezifikation für Connections.
+ *
+ * @param edges Die Fussballvereine der Seite mit ihren Cursorn
+ * @param pageInfo Informationen zum Blättern
+ */
+record FussballvereinConnection(List<FussballvereinEdge> edges, PageInfo pageInfo) {
+    /**
+     * Konvertierung einer Seite aus dem Service. Der Cursor ist die ID des jeweiligen Fussballvereins.
+     *
+     * @param seite Die Seite aus der Keyset-Pagination
+     * @param hatVorherige true, falls die Seite nach einem Cursor gelesen wurde
+     * @return Die Connection für das GraphQL-Schema
+     */
+    static FussballvereinConnection of(final Seite seite, final boolean hatVorherige) {
+        final var edges = toEdges(seite.fussballvereine(), verein -> verein.getId().toString());
+        final var startCursor = edges.isEmpty() ? null : edges.get(0).cursor();
+        final var endCursor = edges.isEmpty() ? null : edges.get(edges.size() - 1).cursor();
+        return new FussballvereinConnection(
+            edges,
+            new PageInfo(seite.hatWeitere(), hatVorherige, startCursor, endCursor)
+        );
+    }
+
+    /**
+     * Konvertierung einer Seite beim Delta-Abgleich. Der Cursor besteht aus Zeitstempel und ID des jeweiligen
+     * Fussballvereins. <code>endCursor</code> ist auch bei einer leeren Seite gesetzt, damit der Abgleich später
+     * fortgesetzt werden kann.
+     *
+     * @param delta Die Seite aus dem Delta-Abgleich
+     * @param hatVorherige true, falls die Seite nach einem Cursor gelesen wurde
+     * @return Die Connection für das GraphQL-Schema
+     */
+    static FussballvereinConnection of(final Delta delta, final boolean hatVorherige) {
+        final var edges = toEdges(
+            delta.fussballvereine(),
+            verein -> new DeltaCursor(verein.getAktualisiert(), verein.getId()).toString()
+        );
+        final var startCursor = edges.isEmpty() ? null : edges.get(0).cursor();
+        return new FussballvereinConnection(
+            edges,
+            new PageInfo(delta.hatWeitere(), hatVorherige, startCursor, delta.cursor().toString())
+        );
+    }
+
+    private static List<FussballvereinEdge> toEdges(
+        final List<Fussballverein> fussballvereine,
+        final Function<Fussballverein, String> cursor
+    ) {
+        return fussballvereine.stream()
+            .map(verein -> new FussballvereinEdge(verein, cursor.apply(verein)))
+            .toList();
+    }
+}
@@ -17,6 +17,7 @@
 package com.acme.fussballverein.graphql;
 
 import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.service.BatchTooLargeException;
 import com.acme.fussballverein.service.ConstraintViolationsException;
 import com.acme.fussballverein.service.EmailExistsException;
 import com.acme.fussballverein.service.FussballvereinWriteService;
@@ -34,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import static org.springframework.graphql.execution.ErrorType.BAD_REQUEST;
 /**
  * Eine Controller-Klasse für das Schreiben mit der GraphQL-Schnittstelle und den Typen aus dem GraphQL-Schema.
@@ -59,6 +61,25 @@ class FussballvereinMutationController {
         return new CreatePayload(id);
     }
 
+    /**
+     * Mehrere neue Fussballvereine in einer Transaktion anlegen, höchstens
+     * {@link FussballvereinWriteService#MAX_BATCH_SIZE}.
+     *
+     * @param input Die Eingabedaten für die neuen Fussballvereine
+     * @return Ein Resultat je Fussballverein in derselben Reihenfolge wie die Eingabe
+     */
+    @MutationMapping
+    List<CreateManyPayload> createMany(@Argument final List<FussballvereinInput> input) {
+        log.debug("createMany: {} Fussballvereine", input.size());
+        final var ergebnisse = service.createMany(input.stream().map(FussballvereinInput::toFussballverein).toList());
+        return IntStream.range(0, ergebnisse.size())
+            .mapToObj(index -> {
+                final var ergebnis = ergebnisse.get(index);
+                return new CreateManyPayload(index, ergebnis.id(), ergebnis.status(), ergebnis.fehler());
+            })
+            .toList();
+    }
+
     @GraphQlExceptionHandler
     GraphQLError handleEmailExists(final EmailExistsException ex) {
         return GraphQLError.newError()
@@ -67,6 +88,14 @@ class FussballvereinMutationController {
             .build();
     }
 
+    @GraphQlExceptionHandler
+    GraphQLError handleBatchTooLarge(final BatchTooLargeException ex) {
+        return GraphQLError.newError()
+            .errorType(BAD_REQUEST)
+            .message(ex.getMessage())
+            .build();
+    }
+
     @GraphQlExceptionHandler
     GraphQLError handleDateTimeParseException(final DateTimeParseException ex) {
         return GraphQLError.newError()
@@ -1,26 +1,61 @@
 package com.acme.fussballverein.graphql;
 
 import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.entity.Mannschaft;
+import com.acme.fussballverein.repository.Trainer;
+import com.acme.fussballverein.service.DeltaCursor;
 import com.acme.fussballverein.service.FussballvereinReadService;
-import lombok.RequiredArgsConstructor;
+import graphql.GraphQLError;
 import lombok.extern.slf4j.Slf4j;
+import org.dataloader.DataLoader;
 import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.GraphQlExceptionHandler;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
 import org.springframework.stereotype.Controller;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.UUID;
 import static java.util.Collections.emptyMap;
+import static org.springframework.graphql.execution.ErrorType.BAD_REQUEST;
 
 /**
  * Eine Controller-Klasse für das Lesen mit der GraphQL-Schnittstelle und den Typen aus dem GraphQL-Schema.
  */
 @Controller
-@RequiredArgsConstructor
 @Slf4j
 class FussballvereinQueryController {
+    /**
+     * Seitengröße, falls das Argument <code>first</code> fehlt.
+     */
+    private static final int DEFAULT_FIRST = 20;
+
     private final FussballvereinReadService service;
 
+    /**
+     * Konstruktor, der zusätzlich einen DataLoader für Trainer registriert. Dadurch werden die Trainer zu allen
+     * Fussballvereinen eines Requests gemeinsam ermittelt, d.h. wenige Trainer nicht-blockierend parallel und viele
+     * Trainer gebündelt, auch wenn sowohl <code>trainerName</code> als auch <code>trainerEmail</code> angefordert
+     * werden.
+     *
+     * @param service Der Service für lesende Zugriffe
+     * @param registry Die Registry für DataLoader
+     */
+    FussballvereinQueryController(final FussballvereinReadService service, final BatchLoaderRegistry registry) {
+        this.service = service;
+        registry.forTypePair(UUID.class, Trainer.class)
+            .registerMappedBatchLoader((trainerIds, env) -> service.findTrainer(trainerIds));
+    }
+
     /**
      * Suche anhand der Fussballverein-ID.
      *
@@ -30,7 +65,8 @@ class FussballvereinQueryController {
     @QueryMapping
     Fussballverein fussballverein(@Argument final UUID id) {
         log.debug("fussballverein: id={}", id);
-        final var fussballverein = service.findByID(id);
+        // die Mannschaften ermittelt ggf. nur die BatchMapping mannschaften()
+        final var fussballverein = service.findByIdOhneMannschaften(id);
         log.debug("fussballverein: {}", fussballverein);
         return fussballverein;
     }
@@ -39,14 +75,119 @@ class FussballvereinQueryController {
      * Suche mit diversen Suchkriterien.
      *
      * @param input Suchkriterien und ihre Werte, z.B. `name` und `VFR Rheinsheim`
-     * @return Die gefundenen Fussballvereine als Collection
+     * @return Die gefundenen Fussballvereine
      */
     @QueryMapping
     Collection<Fussballverein> fussballvereine(@Argument final Optional<Suchkriterien> input) {
         log.debug("fussballvereine: suchkriterien={}", input);
         final var suchkriterien = input.map(Suchkriterien::toMap).orElse(emptyMap());
-        final var fussballvereine = service.find(suchkriterien);
-        log.debug("fussballvereine: {}", fussballvereine);
+        final var fussballvereine = service.findOhneMannschaften(suchkriterien);
+        log.debug("fussballvereine: {} Vereine", fussballvereine.size());
         return fussballvereine;
     }
+
+    /**
+     * Alle Fussballvereine seitenweise mit Keyset-Pagination gemäß der Relay-Spezifikation ermitteln.
+     *
+     * @param first Die Seitengröße, Default 20
+     * @param after Der Cursor aus <code>endCursor</code> der vorherigen Seite oder null für die erste Seite
+     * @return Die Seite als Connection
+     */
+    @QueryMapping
+    FussballvereinConnection fussballvereineSeite(
+        @Argument final Optional<Integer> first,
+        @Argument final Optional<String> after
+    ) {
+        log.debug("fussballvereineSeite: first={}, after={}", first, after);
+        final var cursor = after.map(UUID::fromString).orElse(null);
+        final var seite = service.findSeite(cursor, first.orElse(DEFAULT_FIRST), false, false);
+        return FussballvereinConnection.of(seite, cursor != null);
+    }
+
+    /**
+     * Delta-Abgleich: die seit einem Zeitpunkt oder nach einem Cursor geänderten Fussballvereine, sortiert nach
+     * Zeitstempel und ID. <code>endCursor</code> wird beim nächsten Abgleich als <code>after</code> übergeben.
+     *
+     * @param since Zeitpunkt im ISO-Format, ab dem die Änderungen geliefert werden, falls es keinen Cursor gibt
+     * @param first Die Seitengröße, Default 20
+     * @param after Der Cursor aus <code>endCursor</code> des vorherigen Abgleichs
+     * @return Die geänderten Fussballvereine als Connection
+     */
+    @QueryMapping
+    FussballvereinConnection fussballvereineDelta(
+        @Argument final Optional<String> since,
+        @Argument final Optional<Integer> first,
+        @Argument final Optional<String> after
+    ) {
+        log.debug("fussballvereineDelta: since={}, first={}, after={}", since, first, after);
+        final var cursor = after.map(DeltaCursor::parse)
+            .orElseGet(() -> since.map(s -> DeltaCursor.ab(LocalDateTime.parse(s))).orElse(DeltaCursor.ANFANG));
+        final var delta = service.findDelta(cursor, first.orElse(DEFAULT_FIRST), false);
+        return FussballvereinConnection.of(delta, after.isPresent());
+    }
+
+    /**
+     * Die Mannschaften aller Fussballvereine eines Requests mit einer einzigen DB-Abfrage ermitteln.
+     *
+     * @param fussballvereine Die übergeordneten Fussballvereine
+     * @return Die Mannschaften je Fussballverein
+     */
+    @BatchMapping
+    Map<Fussballverein, List<Mannschaft>> mannschaften(final List<Fussballverein> fussballvereine) {
+        final var ids = fussballvereine.stream().map(Fussballverein::getId).toList();
+        final var mannschaftenMap = service.findMannschaften(ids);
+        return fussballvereine.stream().collect(Collectors.toMap(
+            Function.identity(),
+            verein -> mannschaftenMap.getOrDefault(verein.getId(), List.of())
+        ));
+    }
+
+    /**
+     * Name des Trainers nur dann ermitteln, wenn das Feld <code>trainerName</code> angefordert wird.
+     *
+     * @param fussballverein Der übergeordnete Fussballverein
+     * @param loader DataLoader, der die Trainer eines Requests gebündelt ermittelt
+     * @return Der Name des Trainers oder null, falls der Verein keinen Trainer hat
+     */
+    @SchemaMapping(typeName = "Fussballverein")
+    CompletableFuture<String> trainerName(
+        final Fussballverein fussballverein,
+        final DataLoader<UUID, Trainer> loader
+    ) {
+        return findTrainer(fussballverein, loader).thenApply(trainer -> trainer == null ? null : trainer.name());
+    }
+
+    /**
+     * Emailadresse des Trainers nur dann ermitteln, wenn das Feld <code>trainerEmail</code> angefordert wird.
+     *
+     * @param fussballverein Der übergeordnete Fussballverein
+     * @param loader DataLoader, der die Trainer eines Requests gebündelt ermittelt
+     * @return Die Emailadresse des Trainers oder null, falls der Verein keinen Trainer hat
+     */
+    @SchemaMapping(typeName = "Fussballverein")
+    CompletableFuture<String> trainerEmail(
+        final Fussballverein fussballverein,
+        final DataLoader<UUID, Trainer> loader
+    ) {
+        return findTrainer(fussballverein, loader).thenApply(trainer -> trainer == null ? null : trainer.email());
+    }
+
+    private static CompletableFuture<Trainer> findTrainer(
+        final Fussballverein fussballverein,
+        final DataLoader<UUID, Trainer> loader
+    ) {
+        final var trainerId = fussballverein.getTrainerId();
+        if (trainerId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return loader.load(trainerId);
+    }
+
+    @GraphQlExceptionHandler({IllegalArgumentException.class, DateTimeParseException.class})
+    GraphQLError handleUngueltigesArgument(final RuntimeException ex) {
+        return GraphQLError.newError()
+            .errorType(BAD_REQUEST)
+            .message(ex.getMessage())
+            .build();
+    }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.graphql;
+
+/**
+ * Value-Klasse für die Informationen zum Blättern gemäß der Relay-Spezifikation.
+ *
+ * @param hasNextPage true, falls es nach dieser Seite weitere Einträge gibt
+ * @param hasPreviousPage true, falls es vor dieser Seite Einträge gibt
+ * @param startCursor Cursor des ersten Eintrags oder null
+ * @param endCursor Cursor des letzten Eintrags oder null
+ */
+record PageInfo(boolean hasNextPage, boolean hasPreviousPage, String startCursor, String endCursor) {
+}
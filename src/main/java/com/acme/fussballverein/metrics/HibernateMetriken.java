@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.metrics;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static org.hibernate.cfg.AvailableSettings.STATEMENT_INSPECTOR;
+
+/**
+ * Hibernate für die Metriken konfigurieren: jede SQL-Anweisung wird durch {@link StatementZaehler} dem Request
+ * zugeordnet. Langsame Abfragen erfasst {@link RepositoryPhase}, die übrigen Metriken <code>hibernate.*</code> liefert
+ * Spring Boot durch <code>hibernate-micrometer</code>, sofern in <code>application.yml</code> die Statistik mit
+ * <code>generate_statistics</code> aktiviert ist.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+class HibernateMetriken implements HibernatePropertiesCustomizer {
+    @Override
+    public void customize(final Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(STATEMENT_INSPECTOR, new StatementZaehler());
+    }
+}
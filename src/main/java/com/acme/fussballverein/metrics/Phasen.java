@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aufsummierte Dauer der Phasen eines Requests, z.B. Zugriffe auf die DB oder auf den Microservice "Trainer", für den
+ * Response-Header <code>Server-Timing</code>. Die Phasen werden über den aktuellen Thread dem Request zugeordnet.
+ * Was in einem anderen Thread läuft, z.B. der DataLoader für die Trainer bei GraphQL, wird nur durch die Timer von
+ * Micrometer erfasst.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public final class Phasen {
+    /**
+     * Phase für die Zugriffe auf die DB durch die Repositories.
+     */
+    public static final String DB = "db";
+
+    /**
+     * Phase für die Zugriffe auf den Microservice "Trainer".
+     */
+    public static final String TRAINER = "trainer";
+
+    /**
+     * Phase vom Beginn des Requests bis zum Schreiben des Response-Headers.
+     */
+    static final String APP = "app";
+
+    private static final ThreadLocal<Phasen> AKTUELL = new ThreadLocal<>();
+    private static final double NANOS_PRO_MILLI = 1_000_000.0;
+
+    private final long start = System.nanoTime();
+    private final Map<String, LongAdder> dauer = new ConcurrentHashMap<>();
+    private final LongAdder statements = new LongAdder();
+
+    Phasen() {
+    }
+
+    /**
+     * Die Dauer einer Phase zum Request des aktuellen Threads addieren. Ohne Request, z.B. bei AenderungRelay, wird
+     * nichts erfasst.
+     *
+     * @param phase Name der Phase, z.B. {@link #DB}
+     * @param nanos Dauer in Nanosekunden
+     */
+    public static void erfassen(final String phase, final long nanos) {
+        final var phasen = AKTUELL.get();
+        if (phasen != null) {
+            phasen.dauer.computeIfAbsent(phase, key -> new LongAdder()).add(nanos);
+        }
+    }
+
+    /**
+     * Eine SQL-Anweisung zum Request des aktuellen Threads zählen, siehe {@link StatementZaehler}.
+     */
+    static void statementZaehlen() {
+        final var phasen = AKTUELL.get();
+        if (phasen != null) {
+            phasen.statements.increment();
+        }
+    }
+
+    static void binden(final Phasen phasen) {
+        AKTUELL.set(phasen);
+    }
+
+    static void loesen() {
+        AKTUELL.remove();
+    }
+
+    long getStatements() {
+        return statements.sum();
+    }
+
+    /**
+     * Den Wert für den Header <code>Server-Timing</code> bilden, z.B.
+     * <code>db;desc="2 SQL";dur=12.3, app;dur=20.1</code>.
+     *
+     * @param bis Zeitpunkt in Nanosekunden, bis zu dem die Phase {@link #APP} gemessen wird
+     * @return Der Wert für den Header
+     */
+    String serverTiming(final long bis) {
+        final var sb = new StringBuilder(64);
+        dauer.forEach((phase, nanos) -> eintrag(sb, phase, nanos.sum()).append(", "));
+        final var anzahl = statements.sum();
+        if (anzahl > 0) {
+            // Anzahl der SQL-Anweisungen ohne Dauer, z.B. um N+1-Abfragen im Browser zu erkennen
+            sb.append("sql;desc=\"").append(anzahl).append(" SQL\", ");
+        }
+        return eintrag(sb, APP, bis - start).toString();
+    }
+
+    private static StringBuilder eintrag(final StringBuilder sb, final String phase, final long nanos) {
+        return sb.append(phase)
+            .append(";dur=")
+            .append(String.format(Locale.ROOT, "%.1f", nanos / NANOS_PRO_MILLI));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.stereotype.Component;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Die Dauer aller Methoden der Repositories von Spring Data für den Header <code>Server-Timing</code> erfassen. Die
+ * Timer je Repository und Methode liefert bereits Spring Boot als <code>spring.data.repository.invocations</code>.
+ * Methoden, die mindestens so lange wie <code>LOG_QUERIES_SLOWER_THAN_MS</code> dauern, werden zusätzlich als Timer
+ * <code>hibernate.query.slow</code> mit der Methode als Tag <code>query</code> erfasst, z.B.
+ * <code>FussballvereinRepository.findByName</code>.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Aspect
+@Component
+class RepositoryPhase {
+    private static final String LANGSAM_AB = "hibernate.session.events.log.LOG_QUERIES_SLOWER_THAN_MS";
+    private static final long LANGSAM_AB_DEFAULT = 20L;
+
+    private final MeterRegistry meterRegistry;
+    private final long langsamAbNanos;
+
+    RepositoryPhase(final MeterRegistry meterRegistry, final JpaProperties jpaProperties) {
+        this.meterRegistry = meterRegistry;
+        // derselbe Schwellwert wie fuer die Log-Ausgabe langsamer Abfragen durch Hibernate
+        final var langsamAb = jpaProperties.getProperties().get(LANGSAM_AB);
+        langsamAbNanos = MILLISECONDS.toNanos(langsamAb == null ? LANGSAM_AB_DEFAULT : Long.parseLong(langsamAb));
+    }
+
+    /**
+     * Einen Aufruf eines Repository ausführen und die Dauer als Phase {@link Phasen#DB} erfassen.
+     *
+     * @param joinPoint Der Aufruf des Repository
+     * @return Das Resultat des Repository
+     * @throws Throwable Exception des Repository
+     */
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object messen(final ProceedingJoinPoint joinPoint) throws Throwable {
+        final var start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            final var nanos = System.nanoTime() - start;
+            Phasen.erfassen(Phasen.DB, nanos);
+            if (nanos >= langsamAbNanos) {
+                final var signature = joinPoint.getSignature();
+                Timer.builder("hibernate.query.slow")
+                    .description("Abfragen, die mindestens so lange wie LOG_QUERIES_SLOWER_THAN_MS dauern")
+                    .tag("query", signature.getDeclaringType().getSimpleName() + '.' + signature.getName())
+                    .register(meterRegistry)
+                    .record(nanos, NANOSECONDS);
+            }
+        }
+    }
+}
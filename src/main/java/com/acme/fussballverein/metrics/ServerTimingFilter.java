@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.springframework.web.servlet.HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE;
+
+/**
+ * Servlet-Filter, der die Phasen eines Requests im Response-Header <code>Server-Timing</code> liefert, z.B.
+ * <code>Server-Timing: db;dur=8.2, trainer;dur=31.0, app;dur=42.7</code>. Der Header wird geschrieben, sobald der
+ * Response-Body beginnt. Die anschließende Serialisierung, z.B. in HAL, wird deshalb als Timer
+ * <code>http.server.serialization</code> gemessen. Die Anzahl der SQL-Anweisungen je Request liefert die Metrik
+ * <code>hibernate.statements.request</code>.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class ServerTimingFilter extends OncePerRequestFilter {
+    /**
+     * Name des Response-Headers.
+     */
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private static final String PHASEN = Phasen.class.getName();
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    ServerTimingFilter(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(
+        final HttpServletRequest request,
+        final HttpServletResponse response,
+        final FilterChain filterChain
+    ) throws ServletException, IOException {
+        // bei einem asynchronen Request, z.B. GraphQL, wird der Filter beim "async dispatch" erneut durchlaufen
+        var phasen = (Phasen) request.getAttribute(PHASEN);
+        if (phasen == null) {
+            phasen = new Phasen();
+            request.setAttribute(PHASEN, phasen);
+        }
+        var antwort = WebUtils.getNativeResponse(response, TimingResponse.class);
+        final HttpServletResponse weiter;
+        if (antwort == null) {
+            antwort = new TimingResponse(response, phasen);
+            weiter = antwort;
+        } else {
+            weiter = response;
+        }
+
+        Phasen.binden(phasen);
+        try {
+            filterChain.doFilter(request, weiter);
+        } finally {
+            Phasen.loesen();
+            if (!request.isAsyncStarted()) {
+                antwort.header();
+                messen(request, antwort, phasen);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private void messen(final HttpServletRequest request, final TimingResponse antwort, final Phasen phasen) {
+        final var pattern = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+        final var uri = pattern == null ? UNKNOWN : pattern.toString();
+        Timer.builder("http.server.serialization")
+            .description("Dauer vom Beginn des Response-Body bis zum Ende des Requests")
+            .tag("uri", uri)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - antwort.headerNanos, NANOSECONDS);
+        DistributionSummary.builder("hibernate.statements.request")
+            .description("SQL-Anweisungen je Request")
+            .tag("uri", uri)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(phasen.getStatements());
+    }
+
+    /**
+     * Response, der vor dem ersten Schreiben den Header <code>Server-Timing</code> setzt.
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+        private final Phasen phasen;
+        private boolean headerGesetzt;
+        private long headerNanos;
+
+        TimingResponse(final HttpServletResponse response, final Phasen phasen) {
+            super(response);
+            this.phasen = phasen;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            header();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            header();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            header();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            header();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg) throws IOException {
+            header();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            header();
+            super.sendRedirect(location);
+        }
+
+        void header() {
+            if (headerGesetzt) {
+                return;
+            }
+            headerGesetzt = true;
+            headerNanos = System.nanoTime();
+            if (!isCommitted()) {
+                setHeader(SERVER_TIMING, phasen.serverTiming(headerNanos));
+            }
+        }
+    }
+}
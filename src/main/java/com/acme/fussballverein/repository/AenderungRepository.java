@@ -0,0 +1,100 @@
+package com.acme.fussballverein.repository;
+
+import com.acme.fussballverein.entity.Aenderung;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository für das Änderungsprotokoll ("Transactional Outbox") der Fußballvereine.
+ */
+@Repository
+public interface AenderungRepository extends JpaRepository<Aenderung, UUID> {
+    /**
+     * Die ältesten noch nicht veröffentlichten Änderungen ermitteln.
+     *
+     * @param pageable Maximale Anzahl der Änderungen
+     * @return Liste der noch nicht veröffentlichten Änderungen in der Reihenfolge ihres Entstehens
+     */
+    @Query("""
+        SELECT a
+        FROM   Aenderung a
+        WHERE  a.position IS NULL
+        ORDER BY a.erzeugt, a.id
+        """)
+    List<Aenderung> findUnveroeffentlicht(Pageable pageable);
+
+    /**
+     * Die veröffentlichten Änderungen nach einer Position ermitteln.
+     *
+     * @param since Position der zuletzt gelesenen Änderung
+     * @param pageable Maximale Anzahl der Änderungen
+     * @return Liste der Änderungen aufsteigend nach der Position
+     */
+    @Query("""
+        SELECT a
+        FROM   Aenderung a
+        WHERE  a.position > :since
+        ORDER BY a.position
+        """)
+    List<Aenderung> findSeit(long since, Pageable pageable);
+
+    /**
+     * Die Änderungen an einem Fussballverein nach einer Versionsnummer ermitteln, z.B. um beim Zusammenführen
+     * paralleler Änderungen die seitdem geänderten Attribute zu prüfen.
+     *
+     * @param fussballvereinId ID des Fussballvereins
+     * @param version Versionsnummer, auf der eine Änderung basiert
+     * @return Liste der Änderungen aufsteigend nach der Versionsnummer
+     */
+    @Query("""
+        SELECT a
+        FROM   Aenderung a
+        WHERE  a.fussballvereinId = :fussballvereinId AND a.version > :version
+        ORDER BY a.version
+        """)
+    List<Aenderung> findSeitVersion(UUID fussballvereinId, int version);
+
+    /**
+     * Fortlaufende Positionen für die zu veröffentlichenden Änderungen reservieren.
+     *
+     * @param anzahl Anzahl der benötigten Positionen
+     * @return Aufsteigende Liste der reservierten Positionen
+     */
+    @Query(value = """
+        SELECT nextval('aenderung_position_seq')
+        FROM   generate_series(1, :anzahl)
+        """, nativeQuery = true)
+    List<Long> nextPositionen(int anzahl);
+
+    /**
+     * Veröffentlichte Änderungen löschen, die vor einem Zeitpunkt veröffentlicht wurden. Es wird höchstens die
+     * angegebene Anzahl gelöscht, damit eine Transaktion nicht beliebig viele Zeilen sperrt.
+     *
+     * @param bis Zeitpunkt, vor dem die Änderungen veröffentlicht wurden
+     * @param anzahl Maximale Anzahl der zu löschenden Änderungen
+     * @return Anzahl der gelöschten Änderungen
+     */
+    @Modifying
+    @Query(value = """
+        DELETE FROM aenderung
+        WHERE  id IN (SELECT id FROM aenderung WHERE veroeffentlicht < :bis LIMIT :anzahl)
+        """, nativeQuery = true)
+    int deleteVeroeffentlichtVor(LocalDateTime bis, int anzahl);
+
+    /**
+     * Eine transaktionsgebundene Advisory-Sperre anfordern, damit bei mehreren Instanzen nur ein Relay gleichzeitig
+     * Positionen vergibt.
+     *
+     * @param schluessel Schlüssel der Sperre
+     * @return true, falls die Sperre erhalten wurde
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:schluessel)", nativeQuery = true)
+    boolean tryLock(long schluessel);
+}
@@ -17,17 +17,27 @@
 package com.acme.fussballverein.repository;
 
 import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.entity.Mannschaft;
 import com.querydsl.core.types.Predicate;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import org.springframework.stereotype.Repository;
 import static com.acme.fussballverein.entity.Fussballverein.MANNSCHAFT_GRAPH;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 /**
  * Repository für den DB-Zugriff bei Fussballvereinen.
@@ -47,6 +57,33 @@ public interface FussballvereinRepository extends JpaRepository<Fussballverein,
     @Override
     Optional<Fussballverein> findById(UUID id);
 
+    /**
+     * Nur die Versionsnummer eines Fussballvereins ermitteln, z.B. für einen bedingten GET-Request mit ETag.
+     *
+     * @param id ID des Fussballvereins
+     * @return Optional mit der Versionsnummer oder leeres Optional
+     */
+    @Query("""
+        SELECT f.version
+        FROM   Fussballverein f
+        WHERE  f.id = :id
+        """)
+    Optional<Integer> findVersionById(UUID id);
+
+    /**
+     * ID, Versionsnummer und Emailadresse eines Fussballvereins ermitteln, ohne den Fussballverein mit seinen
+     * Mannschaften zu laden, z.B. um Vorbedingungen beim Ändern zu prüfen.
+     *
+     * @param id ID des Fussballvereins
+     * @return Optional mit der Projektion oder leeres Optional
+     */
+    @Query("""
+        SELECT new com.acme.fussballverein.repository.VersionInfo(f.id, f.version, f.email)
+        FROM   Fussballverein f
+        WHERE  f.id = :id
+        """)
+    Optional<VersionInfo> findVersionInfoById(UUID id);
+
     /**
      * Fussballverein zu gegebener Emailadresse aus der DB ermitteln.
      *
@@ -61,6 +98,19 @@ public interface FussballvereinRepository extends JpaRepository<Fussballverein,
     @EntityGraph(MANNSCHAFT_GRAPH)
     Optional<Fussballverein> findByEmail(String email);
 
+    /**
+     * Fussballverein zu gegebener Emailadresse ermitteln, ohne seine Mannschaften zu laden.
+     *
+     * @param email Emailadresse für die Suche
+     * @return Optional mit dem gefundenen Fussballverein oder leeres Optional
+     */
+    @Query("""
+        SELECT f
+        FROM   Fussballverein f
+        WHERE  lower(f.email) LIKE concat(lower(:email), '%')
+        """)
+    Optional<Fussballverein> findByEmailOhneMannschaften(String email);
+
     /**
      * Fussballverein zu gegebener Emailadresse aus der DB ermitteln.
      *
@@ -75,6 +125,171 @@ public interface FussballvereinRepository extends JpaRepository<Fussballverein,
     @EntityGraph(MANNSCHAFT_GRAPH)
     Collection<Fussballverein> findByPlz(String plz);
 
+    /**
+     * Alle Fussballvereine ohne ihre Mannschaften aus der DB ermitteln, z.B. wenn die Mannschaften anschließend
+     * gebündelt mit {@link #findMannschaftenByVereinIds(Collection)} gelesen werden.
+     *
+     * @return Die Fussballvereine, deren Mannschaften noch nicht geladen sind
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        ORDER BY f.id
+        """)
+    List<Fussballverein> findAllOhneMannschaften();
+
+    /**
+     * Die erste Seite bei der Keyset-Pagination ermitteln, ohne die Mannschaften zu laden.
+     *
+     * @param pageable Die maximale Anzahl an Fussballvereinen, der Offset ist immer 0
+     * @return Die Fussballvereine mit den kleinsten IDs
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        ORDER BY f.id
+        """)
+    List<Fussballverein> findErsteSeite(Pageable pageable);
+
+    /**
+     * Die Seite nach einem Cursor bei der Keyset-Pagination ermitteln, ohne die Mannschaften zu laden. Durch die
+     * Bedingung auf die ID wird der Primärschlüssel-Index auch bei "tiefen" Seiten genutzt.
+     *
+     * @param after Die ID des letzten Fussballvereins der vorherigen Seite
+     * @param pageable Die maximale Anzahl an Fussballvereinen, der Offset ist immer 0
+     * @return Die Fussballvereine mit einer größeren ID als der Cursor
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        WHERE    f.id > :after
+        ORDER BY f.id
+        """)
+    List<Fussballverein> findSeiteNach(UUID after, Pageable pageable);
+
+    /**
+     * Fussballvereine zu gegebenen IDs mit ihren Mannschaften laden. Bereits geladene Fussballvereine im Persistence
+     * Context erhalten dadurch ihre Mannschaften.
+     *
+     * @param ids Die IDs der Fussballvereine
+     * @return Die Fussballvereine mit ihren Mannschaften
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        WHERE    f.id IN :ids
+        ORDER BY f.id
+        """)
+    @EntityGraph(MANNSCHAFT_GRAPH)
+    List<Fussballverein> findMitMannschaften(Collection<UUID> ids);
+
+    /**
+     * Alle Fussballvereine ohne ihre Mannschaften als Stream für einen Export lesen. Die Datensätze werden mit einem
+     * Forward-Only-Cursor blockweise vom DB-Server geholt und nicht auf Änderungen überwacht. Der Stream muss
+     * innerhalb einer Transaktion konsumiert und anschließend geschlossen werden. Der 2nd-Level-Cache wird weder
+     * gelesen noch befüllt, damit ein Export nicht die häufig gelesenen Fussballvereine verdrängt.
+     *
+     * @return Stream mit allen Fussballvereinen, sortiert nach der ID
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        ORDER BY f.id
+        """)
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Fussballverein> streamAll();
+
+    /**
+     * Die nach einem Cursor geänderten Fussballvereine ohne Mannschaften als Stream lesen, sortiert nach
+     * <code>(aktualisiert, id)</code>. Die Bedingung auf <code>aktualisiert</code> allein begrenzt den Bereich im
+     * Index <code>fussballverein_aktualisiert_idx</code>, die ID entscheidet nur bei gleichem Zeitstempel.
+     * Wie bei {@link #streamAll()} wird der 2nd-Level-Cache nicht verwendet.
+     *
+     * @param aktualisiert Zeitstempel des Cursors
+     * @param id ID des Cursors
+     * @param bis Obergrenze für den Zeitstempel (exklusiv)
+     * @param pageable Maximale Anzahl der Fussballvereine
+     * @return Stream mit den geänderten Fussballvereinen
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        WHERE    f.aktualisiert >= :aktualisiert
+                 AND (f.aktualisiert > :aktualisiert OR f.id > :id)
+                 AND f.aktualisiert < :bis
+        ORDER BY f.aktualisiert, f.id
+        """)
+    @QueryHints({
+        @QueryHint(name = HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Fussballverein> streamGeaendertNach(
+        LocalDateTime aktualisiert,
+        UUID id,
+        LocalDateTime bis,
+        Pageable pageable
+    );
+
+    /**
+     * Fussballvereine anhand des Namens suchen, ohne ihre Mannschaften zu laden.
+     *
+     * @param name Der (Teil-) Name der gesuchten Fussballvereine
+     * @return Die gefundenen Fussballvereine oder eine leere Collection
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        WHERE    lower(f.name) LIKE concat('%', lower(:name), '%')
+        ORDER BY f.id
+        """)
+    List<Fussballverein> findByNameOhneMannschaften(CharSequence name);
+
+    /**
+     * Fussballvereine anhand der Postleitzahl suchen, ohne ihre Mannschaften zu laden.
+     *
+     * @param plz Die (Teil-) Postleitzahl der gesuchten Fussballvereine
+     * @return Die gefundenen Fussballvereine oder eine leere Collection
+     */
+    @Query("""
+        SELECT   f
+        FROM     Fussballverein f
+        WHERE    lower(f.plz) LIKE concat('%', lower(:plz), '%')
+        ORDER BY f.id
+        """)
+    List<Fussballverein> findByPlzOhneMannschaften(String plz);
+
+    /**
+     * Die Mannschaften mehrerer Fussballvereine mit einer einzigen Abfrage ermitteln.
+     *
+     * @param ids Die IDs der Fussballvereine
+     * @return Die Mannschaften, sortiert nach Fussballverein und der Reihenfolge innerhalb des Vereins
+     */
+    @Query("""
+        SELECT   m
+        FROM     Fussballverein f JOIN f.mannschaften m
+        WHERE    f.id IN :ids
+        ORDER BY f.id, index(m)
+        """)
+    List<Mannschaft> findMannschaftenByVereinIds(Collection<UUID> ids);
+
+    /**
+     * Aus gegebenen Emailadressen diejenigen ermitteln, die bereits verwendet werden. Jede Emailadresse ist ein
+     * Bind-Parameter (höchstens 32767), deshalb begrenzt der Aufrufer die Anzahl, z.B. mit MAX_BATCH_SIZE.
+     *
+     * @param emails Die zu prüfenden Emailadressen
+     * @return Die bereits vorhandenen Emailadressen
+     */
+    @Query("""
+        SELECT f.email
+        FROM   Fussballverein f
+        WHERE  f.email IN :emails
+        """)
+    List<String> findEmailsIn(Collection<String> emails);
+
     /**
      * Abfrage, ob es einen Fussballvereine mit gegebener Emailadresse gibt.
      *
@@ -111,8 +326,20 @@ public interface FussballvereinRepository extends JpaRepository<Fussballverein,
         WHERE    lower(f.name) LIKE concat(lower(:prefix), '%')
         ORDER BY f.name
         """)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Collection<String> findNamenByPrefix(String prefix);
 
+    /**
+     * ID und Name aller Fussballvereine ermitteln, z.B. um einen Index für die Autovervollständigung aufzubauen.
+     *
+     * @return ID und Name aller Fussballvereine
+     */
+    @Query("""
+        SELECT new com.acme.fussballverein.repository.VereinsnameInfo(f.id, f.name)
+        FROM   Fussballverein f
+        """)
+    List<VereinsnameInfo> findAllNamen();
+
     /**
      * Fussballvereine zu gegebener Trainer-ID aus der DB ermitteln.
      *
@@ -120,5 +347,6 @@ public interface FussballvereinRepository extends JpaRepository<Fussballverein,
      * @return Liste der gefundenen Fussballvereine
      */
     @EntityGraph(MANNSCHAFT_GRAPH)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Fussballverein> findByTrainerId(UUID trainerId);
 }
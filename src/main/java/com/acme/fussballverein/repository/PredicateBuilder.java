@@ -16,7 +16,7 @@
  */
 package com.acme.fussballverein.repository;
 
-//import com.acme.fussballverein.entity.QFussballverein;
+import com.acme.fussballverein.entity.QFussballverein;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import lombok.extern.slf4j.Slf4j;
@@ -41,7 +41,7 @@ public class PredicateBuilder {
      *
      * @param queryParams als MultiValueMap
      * @return Predicate in QueryDSL für eine WHERE-Klausel
-     *
+     */
     @SuppressWarnings("ReturnCount")
     public Optional<Predicate> build(final Map<String, ? extends List<String>> queryParams) {
         log.debug("build: queryParams={}", queryParams);
@@ -81,21 +81,24 @@ public class PredicateBuilder {
     }
 
     private BooleanExpression name(final String teil, final QFussballverein qFussballverein) {
-        return qFussballverein.name.toLowerCase().matches("%" + teil.toLowerCase(GERMAN) + '%');
+        return qFussballverein.name.toLowerCase().like(enthaelt(teil));
     }
 
     private BooleanExpression email(final String teil, final QFussballverein qFussballverein) {
-        return qFussballverein.email.toLowerCase().matches("%" + teil.toLowerCase(GERMAN) + '%');
+        return qFussballverein.email.toLowerCase().like(enthaelt(teil));
     }
 
     private BooleanExpression plz(final String plz, final QFussballverein qFussballverein) {
-        return qFussballverein.plz.toLowerCase().matches("%" + plz.toLowerCase(GERMAN) + '%');
+        return qFussballverein.plz.toLowerCase().like(enthaelt(plz));
     }
 
     private BooleanExpression telefonnummer(final String teil, final QFussballverein qFussballverein) {
-        return qFussballverein.telefonnummer.toLowerCase().matches("%" + teil.toLowerCase(GERMAN) + '%');
-
+        return qFussballverein.telefonnummer.toLowerCase().like(enthaelt(teil));
+    }
 
-    }*/
+    // lower(spalte) LIKE '%teil%' passt zu den Trigram-Indexen aus V1.2__Trigram.sql
+    private static String enthaelt(final String teil) {
+        return "%" + teil.toLowerCase(GERMAN) + '%';
+    }
 }
 
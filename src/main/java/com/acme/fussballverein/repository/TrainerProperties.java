@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Konfiguration für den Zugriff auf den Microservice "Trainer" mit dem Präfix <code>app.trainer</code>.
+ *
+ * @param cacheMaxSize Maximale Anzahl an Trainern im lokalen Cache.
+ * @param cacheTtl Zeitspanne, nach der ein Cache-Eintrag mit "If-None-Match" revalidiert wird.
+ * @param cacheMaxAge Zeitspanne, nach der ein Cache-Eintrag spätestens verworfen wird.
+ * @param maxConcurrency Maximale Anzahl gleichzeitiger Requests an den Microservice "Trainer".
+ * @param deadline Maximale Wartezeit auf die Trainerdaten je Request, danach wird "N/A" verwendet.
+ * @param reactiveConcurrency Maximale Anzahl gleichzeitiger nicht-blockierender Requests je Request. Bis zu dieser
+ *      Anzahl werden Trainer nicht-blockierend einzeln gelesen, darüber gebündelt per GraphQL.
+ */
+@ConfigurationProperties(prefix = "app.trainer")
+public record TrainerProperties(
+    @DefaultValue("10000") int cacheMaxSize,
+    @DefaultValue("5m") Duration cacheTtl,
+    @DefaultValue("1h") Duration cacheMaxAge,
+    @DefaultValue("8") int maxConcurrency,
+    @DefaultValue("3s") Duration deadline,
+    @DefaultValue("32") int reactiveConcurrency
+) {
+}
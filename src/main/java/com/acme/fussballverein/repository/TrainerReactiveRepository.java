@@ -0,0 +1,24 @@
+package com.acme.fussballverein.repository;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.service.annotation.GetExchange;
+import org.springframework.web.service.annotation.HttpExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Nicht-blockierendes "HTTP Interface" für den REST-Client für Trainerdaten.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@HttpExchange("/rest")
+public interface TrainerReactiveRepository {
+    /**
+     * Einen Trainerndatensatz vom Microservice "Trainer" anfordern, ohne auf die Antwort zu warten.
+     *
+     * @param id ID des angeforderten Trainers
+     * @return Mono mit dem Response einschließlich ETag
+     */
+    @GetExchange("/{id}")
+    Mono<ResponseEntity<Trainer>> getTrainer(@PathVariable String id);
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.repository;
+
+import java.util.UUID;
+
+/**
+ * Projektion eines Fussballvereins auf die Werte, die für Vorbedingungen beim Ändern benötigt werden.
+ *
+ * @param id ID des Fussballvereins
+ * @param version Versionsnummer für optimistische Synchronisation
+ * @param email Emailadresse
+ */
+public record VersionInfo(UUID id, int version, String email) {
+}
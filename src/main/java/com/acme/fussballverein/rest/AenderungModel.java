@@ -0,0 +1,25 @@
+package com.acme.fussballverein.rest;
+
+import com.acme.fussballverein.entity.Aenderung;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Eine veröffentlichte Änderung bei <code>GET /rest/changes</code>.
+ *
+ * @param position Fortlaufende Position der Änderung
+ * @param fussballvereinId ID des geänderten Fussballvereins
+ * @param typ <code>ERZEUGT</code>, <code>GEAENDERT</code> oder <code>GELOESCHT</code>
+ * @param zeitpunkt Zeitpunkt der Änderung
+ */
+record AenderungModel(long position, UUID fussballvereinId, String typ, LocalDateTime zeitpunkt) {
+    static AenderungModel of(final Aenderung aenderung) {
+        return new AenderungModel(
+            aenderung.getPosition(),
+            aenderung.getFussballvereinId(),
+            aenderung.getTyp().name(),
+            aenderung.getErzeugt()
+        );
+    }
+}
@@ -0,0 +1,97 @@
+package com.acme.fussballverein.rest;
+
+import com.acme.fussballverein.entity.Aenderung;
+import com.acme.fussballverein.service.AenderungenEvent;
+import com.acme.fussballverein.service.FussballvereinReadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feed der veröffentlichten Änderungen für <code>GET /rest/changes</code> mit "Long Polling": gibt es nach der
+ * Position noch keine Änderung, wartet der Request, bis <code>AenderungRelay</code> den nächsten Block als
+ * {@link AenderungenEvent} veröffentlicht. Die Clients müssen dadurch nicht ständig erneut anfragen.
+ * <p>
+ * Die Events erreichen nur die Requests der Instanz, in der der Relay den Block veröffentlicht hat. Bei einem
+ * Timeout wird deshalb nochmals die DB abgefragt, so dass bei mehreren Instanzen höchstens die Wartezeit verstreicht.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class AenderungenFeed {
+    private final FussballvereinReadService service;
+
+    private final Set<Wartend> wartende = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Die Änderungen nach einer Position ermitteln und ggf. auf weitere Änderungen warten.
+     *
+     * @param since Position der zuletzt gelesenen Änderung
+     * @param size Maximale Anzahl an Änderungen
+     * @param wartezeit Maximale Wartezeit, falls es noch keine Änderungen gibt, oder 0
+     * @return Die Änderungen nach der Position, sobald es welche gibt oder die Wartezeit abgelaufen ist
+     */
+    DeferredResult<AenderungenModel> find(final long since, final int size, final Duration wartezeit) {
+        if (wartezeit.isZero()) {
+            final var result = new DeferredResult<AenderungenModel>();
+            result.setResult(abfragen(since, size));
+            return result;
+        }
+
+        final var result = new DeferredResult<AenderungenModel>(wartezeit.toMillis());
+
+        // zuerst registrieren und dann abfragen, damit kein zwischenzeitlich veroeffentlichter Block verloren geht
+        final var wartend = new Wartend(since, size, result);
+        wartende.add(wartend);
+        result.onCompletion(() -> wartende.remove(wartend));
+        result.onTimeout(() -> result.setResult(abfragen(since, size)));
+        final var model = abfragen(since, size);
+        if (!model.aenderungen().isEmpty()) {
+            result.setResult(model);
+        }
+        return result;
+    }
+
+    /**
+     * Die wartenden Requests mit einem veröffentlichten Block beantworten. Erst nach dem Commit, damit die
+     * Positionen beim nächsten Request auch aus der DB gelesen werden können.
+     *
+     * @param event Der veröffentlichte Block
+     */
+    @TransactionalEventListener
+    void onAenderungen(final AenderungenEvent event) {
+        log.trace("onAenderungen: {} Aenderungen, {} wartende Requests", event.aenderungen().size(), wartende.size());
+        wartende.forEach(wartend -> {
+            final var aenderungen = event.aenderungen().stream()
+                .filter(aenderung -> aenderung.getPosition() > wartend.since())
+                .limit(wartend.size())
+                .toList();
+            if (!aenderungen.isEmpty()) {
+                wartend.result().setResult(toModel(aenderungen, wartend.since()));
+            }
+        });
+    }
+
+    private AenderungenModel abfragen(final long since, final int size) {
+        return toModel(service.findAenderungen(since, size), since);
+    }
+
+    private static AenderungenModel toModel(final Collection<Aenderung> aenderungen, final long since) {
+        final var models = aenderungen.stream()
+            .map(AenderungModel::of)
+            .toList();
+        final var naechste = models.isEmpty() ? since : models.get(models.size() - 1).position();
+        return new AenderungenModel(models, naechste);
+    }
+
+    private record Wartend(long since, int size, DeferredResult<AenderungenModel> result) {
+    }
+}
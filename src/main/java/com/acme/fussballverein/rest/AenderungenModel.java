@@ -0,0 +1,12 @@
+package com.acme.fussballverein.rest;
+
+import java.util.List;
+
+/**
+ * Ergebnis bei <code>GET /rest/changes</code>.
+ *
+ * @param aenderungen Die Änderungen aufsteigend nach ihrer Position
+ * @param since Wert für den Query-Parameter <code>since</code> beim nächsten Request
+ */
+record AenderungenModel(List<AenderungModel> aenderungen, long since) {
+}
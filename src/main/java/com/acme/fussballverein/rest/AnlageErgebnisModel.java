@@ -0,0 +1,15 @@
+package com.acme.fussballverein.rest;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ergebnis für einen einzelnen Fussballverein bei <code>POST /rest/batch</code>.
+ *
+ * @param index Position des Fussballvereins im Request-Body
+ * @param id Die generierte ID oder null, falls der Fussballverein nicht angelegt wurde
+ * @param status <code>CREATED</code>, <code>INVALID</code> oder <code>EMAIL_EXISTS</code>
+ * @param fehler Die Fehlermeldungen oder eine leere Liste
+ */
+record AnlageErgebnisModel(int index, UUID id, String status, List<String> fehler) {
+}
@@ -0,0 +1,62 @@
+package com.acme.fussballverein.rest;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.entity.Mannschaft;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Eine Zeile beim Export der Fussballvereine im Format NDJSON.
+ *
+ * @param id ID des Fussballvereins
+ * @param version Versionsnummer für optimistische Synchronisation
+ * @param name Vereinsname
+ * @param email Emailadresse
+ * @param gruendungsdatum Gründungsdatum
+ * @param plz Postleitzahl
+ * @param telefonnummer Telefonnummer
+ * @param trainerId ID des Trainers
+ * @param erzeugt Zeitpunkt des Anlegens
+ * @param aktualisiert Zeitpunkt der letzten Änderung
+ * @param mannschaften Die Mannschaften des Fussballvereins
+ */
+record FussballvereinExport(
+    UUID id,
+    int version,
+    String name,
+    String email,
+    LocalDate gruendungsdatum,
+    String plz,
+    String telefonnummer,
+    UUID trainerId,
+    LocalDateTime erzeugt,
+    LocalDateTime aktualisiert,
+    List<MannschaftDTO> mannschaften
+) {
+    /**
+     * Konvertierung eines Fussballvereins und seiner separat gelesenen Mannschaften.
+     *
+     * @param verein Der Fussballverein
+     * @param mannschaften Die Mannschaften des Fussballvereins
+     * @return Die Zeile für den Export
+     */
+    static FussballvereinExport of(final Fussballverein verein, final List<Mannschaft> mannschaften) {
+        return new FussballvereinExport(
+            verein.getId(),
+            verein.getVersion(),
+            verein.getName(),
+            verein.getEmail(),
+            verein.getGruendungsdatum(),
+            verein.getPlz(),
+            verein.getTelefonnummer(),
+            verein.getTrainerId(),
+            verein.getErzeugt(),
+            verein.getAktualisiert(),
+            mannschaften.stream()
+                .map(mannschaft -> new MannschaftDTO(mannschaft.getJugend(), mannschaft.getAnzahlMitglieder()))
+                .toList()
+        );
+    }
+}
@@ -1,33 +1,60 @@
 package com.acme.fussballverein.rest;
 
 import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.service.DeltaCursor;
 import com.acme.fussballverein.service.FussballvereinReadService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.LinkRelation;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import static com.acme.fussballverein.service.FussballvereinReadService.MAX_SEITENGROESSE;
 import static org.springframework.hateoas.MediaTypes.HAL_JSON_VALUE;
 import static com.acme.fussballverein.rest.FussballvereinGetController.REST_PATH;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+import static org.springframework.http.ResponseEntity.badRequest;
 import static org.springframework.http.ResponseEntity.notFound;
 import static org.springframework.http.ResponseEntity.ok;
+import static org.springframework.http.ResponseEntity.status;
 
 /**
  * GetController für Fussballvereine.
@@ -51,10 +78,84 @@ public class FussballvereinGetController {
      */
     private static final String NAME_PATH = "/name";
 
+    /**
+     * Name des Query-Parameters für die Auswahl der Felder, z.B. <code>fields=trainerName,trainerEmail</code>.
+     */
+    private static final String FIELDS_PARAM = "fields";
+
+    /**
+     * Felder, für deren Ausgabe der Microservice "Trainer" aufgerufen werden muss.
+     */
+    private static final Set<String> TRAINER_FIELDS = Set.of("trainer", "trainerName", "trainerEmail");
+
+    /**
+     * Name des Query-Parameters für die Seitengröße.
+     */
+    private static final String SIZE_PARAM = "size";
+
+    /**
+     * Name des Query-Parameters für den Cursor, d.h. die ID des letzten Fussballvereins der vorherigen Seite.
+     */
+    private static final String AFTER_PARAM = "after";
+
+    /**
+     * Seitengröße, falls der Query-Parameter <code>size</code> fehlt.
+     */
+    private static final int DEFAULT_SIZE = 20;
+
+    /**
+     * Pfad für den Export aller Fussballvereine.
+     */
+    private static final String EXPORT_PATH = "/export";
+
+    /**
+     * Timeout für den Export aller Fussballvereine.
+     */
+    private static final Duration EXPORT_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * Pfad für den Feed der veröffentlichten Änderungen.
+     */
+    private static final String CHANGES_PATH = "/changes";
+
+    /**
+     * Query-Parameter mit der Position der zuletzt gelesenen Änderung.
+     */
+    private static final String SINCE_PARAM = "since";
+
+    /**
+     * Query-Parameter mit der maximalen Wartezeit in Sekunden auf weitere Änderungen.
+     */
+    private static final String WAIT_PARAM = "wait";
+
+    /**
+     * Maximale Wartezeit in Sekunden auf weitere Änderungen.
+     */
+    private static final int MAX_WARTEZEIT = 30;
+
+    /**
+     * Pfad für den Delta-Abgleich der geänderten Fussballvereine.
+     */
+    private static final String DELTA_PATH = "/delta";
+
+    /**
+     * Query-Parameter mit dem Cursor des vorherigen Delta-Abgleichs.
+     */
+    private static final String CURSOR_PARAM = "cursor";
+
+    /**
+     * Link-Relation mit dem Cursor, um den Delta-Abgleich später fortzusetzen.
+     */
+    private static final LinkRelation SYNC_REL = LinkRelation.of("sync");
+
     private final UriHelper uriHelper;
 
     private final FussballvereinReadService service;
 
+    private final ObjectMapper objectMapper;
+
+    private final AenderungenFeed aenderungenFeed;
+
     /**
      * Regulärer Ausdruck für IDs.
      */
@@ -66,16 +167,37 @@ public class FussballvereinGetController {
      * Gibt Fussballverein zu gegebener ID zurück.
      *
      * @param id UUID des Fussballvereins
+     * @param fields Optionale Auswahl zusätzlicher Felder, z.B. <code>trainerName,trainerEmail</code>.
+     * @param ifNoneMatch Optionale Versionsnummer aus einem vorherigen ETag.
      * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
-     * @return Ein Fussballverein-Objekt
+     * @return Ein Fussballverein-Objekt mit der Versionsnummer als ETag oder Statuscode 304. Mit Feldern des
+     *      Microservice "Trainer" ist das ETag schwach und es gibt keinen Statuscode 304, weil sich diese Daten ohne
+     *      neue Versionsnummer ändern können.
      */
     @GetMapping(path = "{id:" + ID_PATTERN + "}", produces = HAL_JSON_VALUE)
     @Operation(summary = "Suche mit der Fussballverein-ID.", tags = "Suchen")
     @ApiResponse(responseCode = "200", description = "Kunde gefunden.")
+    @ApiResponse(responseCode = "304", description = "Kunde unverändert")
     @ApiResponse(responseCode = "404", description = "Kunde nicht gefunden")
-    FussballvereinModel getById(@PathVariable final UUID id,
+    ResponseEntity<FussballvereinModel> getById(@PathVariable final UUID id,
+                                 @RequestParam(name = FIELDS_PARAM, required = false) final String fields,
+                                 @RequestHeader(IF_NONE_MATCH) final Optional<String> ifNoneMatch,
                                  final HttpServletRequest request) {
-        final var fussballverein = service.findByID(id);
+        final var mitTrainer = mitTrainer(fields);
+        if (ifNoneMatch.isPresent() && !mitTrainer) {
+            // nur die Versionsnummer lesen: keine Mannschaften, kein Microservice "Trainer", kein HAL
+            final var versionOpt = service.findVersionById(id);
+            if (versionOpt.isEmpty()) {
+                return notFound().build();
+            }
+            final var etag = toETag(versionOpt.get());
+            if (matches(ifNoneMatch.get(), etag)) {
+                log.trace("getById: {} unveraendert", etag);
+                return status(NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+
+        final var fussballverein = service.findByID(id, mitTrainer);
         final var model = new FussballvereinModel(fussballverein);
         final var baseUri = uriHelper.getBaseUri(request).toString();
         final var idUri = baseUri + "/" + fussballverein.getId();
@@ -85,44 +207,102 @@ public class FussballvereinGetController {
         final var updateLink = Link.of(idUri, LinkRelation.of("update"));
         final var removeLink = Link.of(idUri, LinkRelation.of("remove"));
         model.add(selfLink, listLink, addLink, updateLink, removeLink);
-        return model;
+        final var etag = toETag(fussballverein.getVersion());
+        return ok().eTag(mitTrainer ? "W/" + etag : etag).body(model);
+    }
+
+    private static String toETag(final int version) {
+        return "\"" + version + '"';
+    }
+
+    // If-None-Match: "*" oder eine kommaseparierte Liste, ggf. mit schwachen ETags W/"..."
+    private static boolean matches(final String ifNoneMatch, final String etag) {
+        return Arrays.stream(ifNoneMatch.split(","))
+            .map(String::strip)
+            .map(value -> value.startsWith("W/") ? value.substring(2) : value)
+            .anyMatch(value -> "*".equals(value) || etag.equals(value));
     }
 
     /**
-     * Suche mit diversen Suchkriterien als Query-Parameter.
+     * Suche mit diversen Suchkriterien als Query-Parameter. Ohne Suchkriterien werden die Fussballvereine seitenweise
+     * mit Keyset-Pagination geliefert: <code>size</code> legt die Seitengröße fest und <code>after</code> ist der
+     * Cursor aus dem Link <code>next</code> der vorherigen Seite.
      *
      * @param queryParams Query-Parameter als Map.
      * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
-     * @return Gefundenen Kunden als CollectionModel.
+     * @return Gefundenen Kunden als CollectionModel oder Statuscode 400 bei ungültigem <code>size</code>,
+     *      <code>after</code> oder <code>trainerId</code>. Die Seitengröße wird auf 1 bis
+     *      {@link FussballvereinReadService#MAX_SEITENGROESSE} begrenzt.
      */
     @GetMapping(produces = HAL_JSON_VALUE)
     @Operation(summary = "Suche mit Suchkriterien", tags = "Suchen")
     @ApiResponse(responseCode = "200", description = "Liste mit Fussballvereinen")
+    @ApiResponse(responseCode = "400", description = "Ungueltige Seitengroesse oder ungueltiger Cursor")
     @ApiResponse(responseCode = "404", description = "Keine Fussballvereine gefunden")
     ResponseEntity<CollectionModel<? extends FussballvereinModel>> get(
         @RequestParam final Map<String, String> queryParams,
         final HttpServletRequest request
     ) {
         log.debug("get: queryParams={}", queryParams);
-        if (queryParams.size() > 1) {
+        final var suchkriterien = new HashMap<>(queryParams);
+        final var fields = suchkriterien.remove(FIELDS_PARAM);
+        final var mitTrainer = mitTrainer(fields);
+        final var sizeStr = suchkriterien.remove(SIZE_PARAM);
+        final var afterStr = suchkriterien.remove(AFTER_PARAM);
+        if (suchkriterien.size() > 1) {
             return notFound().build();
         }
 
-        final Collection<Fussballverein> fussballvereine;
-        if (queryParams.isEmpty()) {
-            fussballvereine = service.findAll();
-        } else {
-            final var trainerIdStr = queryParams.get("trainerId");
-            if (trainerIdStr == null) {
-                return notFound().build();
+        final var baseUri = uriHelper.getBaseUri(request).toString();
+        if (suchkriterien.isEmpty()) {
+            final int size;
+            final UUID after;
+            try {
+                size = sizeStr == null
+                    ? DEFAULT_SIZE
+                    : Math.max(1, Math.min(Integer.parseInt(sizeStr), MAX_SEITENGROESSE));
+                after = afterStr == null ? null : UUID.fromString(afterStr);
+            } catch (final IllegalArgumentException ex) {
+                log.debug("get: {}", ex.getMessage());
+                return badRequest().build();
+            }
+            final var seite = service.findSeite(after, size, true, mitTrainer);
+            final var collectionModel = CollectionModel.of(toModels(seite.fussballvereine(), baseUri));
+            if (seite.hatWeitere()) {
+                final var nextUri = UriComponentsBuilder.fromUriString(baseUri)
+                    .queryParam(SIZE_PARAM, seite.fussballvereine().size())
+                    .queryParam(AFTER_PARAM, seite.cursor())
+                    .queryParamIfPresent(FIELDS_PARAM, Optional.ofNullable(fields))
+                    .toUriString();
+                collectionModel.add(Link.of(nextUri, IanaLinkRelations.NEXT));
             }
-            final var trainerId = UUID.fromString(trainerIdStr);
-            fussballvereine = service.findByTrainerId(trainerId);
+            log.trace("get: {}", collectionModel);
+            return ok(collectionModel);
         }
 
-        final var baseUri = uriHelper.getBaseUri(request).toString();
-        @SuppressWarnings("LambdaBodyLength")
-        final var models = fussballvereine
+        final var trainerIdStr = suchkriterien.get("trainerId");
+        if (trainerIdStr == null) {
+            return notFound().build();
+        }
+        final UUID trainerId;
+        try {
+            trainerId = UUID.fromString(trainerIdStr);
+        } catch (final IllegalArgumentException ex) {
+            log.debug("get: {}", ex.getMessage());
+            return badRequest().build();
+        }
+        final var fussballvereine = service.findByTrainerId(trainerId, mitTrainer);
+        final var models = toModels(fussballvereine, baseUri);
+        log.trace("get: {}", models);
+        return ok(CollectionModel.of(models));
+    }
+
+    @SuppressWarnings("LambdaBodyLength")
+    private static List<FussballvereinModel> toModels(
+        final Collection<Fussballverein> fussballvereine,
+        final String baseUri
+    ) {
+        return fussballvereine
             .stream()
             .map(fussballverein -> {
                 final var model = new FussballvereinModel(fussballverein);
@@ -130,19 +310,145 @@ public class FussballvereinGetController {
                 return model;
             })
             .toList();
-        log.trace("get: {}", models);
-        return ok(CollectionModel.of(models));
+    }
+
+    /**
+     * Prüfen, ob mit dem Query-Parameter <code>fields</code> Daten des Trainers angefordert wurden. Nur dann wird der
+     * Microservice "Trainer" aufgerufen.
+     *
+     * @param fields Kommaseparierte Feldnamen oder null.
+     * @return true, falls trainerName oder trainerEmail ausgegeben werden sollen.
+     */
+    private static boolean mitTrainer(final String fields) {
+        if (fields == null) {
+            return false;
+        }
+        return Arrays.stream(fields.split(","))
+            .map(String::strip)
+            .anyMatch(TRAINER_FIELDS::contains);
+    }
+
+    /**
+     * Alle Fussballvereine mit ihren Mannschaften als NDJSON exportieren, d.h. ein JSON-Datensatz je Zeile. Die
+     * Datensätze werden direkt in den Response geschrieben, statt sie zuvor als Liste im Heap aufzubauen. Der Export
+     * läuft asynchron mit einem eigenen Timeout von {@link #EXPORT_TIMEOUT}, da der Default für asynchrone Requests
+     * bei vielen Datensätzen nicht reicht.
+     *
+     * @param response Der Response, in den die Datensätze geschrieben werden
+     * @return Die asynchrone Verarbeitung mit dem Timeout für den Export
+     */
+    @GetMapping(path = EXPORT_PATH, produces = APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export aller Fussballvereine als NDJSON", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Alle Fussballvereine, je Zeile ein Datensatz")
+    WebAsyncTask<Void> export(final HttpServletResponse response) {
+        log.debug("export");
+        final var writer = objectMapper.writerFor(FussballvereinExport.class);
+        final Callable<Void> export = () -> {
+            response.setContentType(APPLICATION_NDJSON_VALUE);
+            final var out = new BufferedOutputStream(response.getOutputStream());
+            service.export((verein, mannschaften) -> {
+                try {
+                    out.write(writer.writeValueAsBytes(FussballvereinExport.of(verein, mannschaften)));
+                    out.write('\n');
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            out.flush();
+            // kein Rueckgabewert: der Response ist bereits vollstaendig geschrieben
+            return null;
+        };
+        return new WebAsyncTask<>(EXPORT_TIMEOUT.toMillis(), export);
+    }
+
+    /**
+     * Delta-Abgleich: die seit einem Zeitpunkt oder einem Cursor geänderten Fussballvereine, sortiert nach
+     * <code>(aktualisiert, id)</code>. Der Link <code>next</code> existiert, solange sofort weitere Fussballvereine
+     * vorliegen. Der Link <code>sync</code> enthält immer den Cursor, um den Abgleich später fortzusetzen.
+     *
+     * @param since Zeitpunkt, ab dem die Änderungen geliefert werden, falls es noch keinen Cursor gibt.
+     * @param cursor Der Cursor aus dem Link <code>next</code> bzw. <code>sync</code> des vorherigen Abgleichs.
+     * @param size Maximale Anzahl an Fussballvereinen.
+     * @param request Das Request-Objekt, um Links für HATEOAS zu erstellen.
+     * @return Die geänderten Fussballvereine oder Statuscode 400 bei einem ungültigen Cursor.
+     */
+    @GetMapping(path = DELTA_PATH, produces = HAL_JSON_VALUE)
+    @Operation(summary = "Delta-Abgleich der geaenderten Fussballvereine", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Geaenderte Fussballvereine")
+    @ApiResponse(responseCode = "400", description = "Ungueltiger Cursor")
+    ResponseEntity<CollectionModel<FussballvereinModel>> getDelta(
+        @RequestParam(name = SINCE_PARAM, required = false) @DateTimeFormat(iso = DATE_TIME)
+        final LocalDateTime since,
+        @RequestParam(name = CURSOR_PARAM, required = false) final String cursor,
+        @RequestParam(name = SIZE_PARAM, defaultValue = "20") final int size,
+        final HttpServletRequest request
+    ) {
+        log.debug("getDelta: since={}, cursor={}, size={}", since, cursor, size);
+        final DeltaCursor nach;
+        if (cursor != null) {
+            try {
+                nach = DeltaCursor.parse(cursor);
+            } catch (final IllegalArgumentException ex) {
+                log.debug("getDelta: {}", ex.getMessage());
+                return badRequest().build();
+            }
+        } else {
+            nach = since == null ? DeltaCursor.ANFANG : DeltaCursor.ab(since);
+        }
+
+        final var delta = service.findDelta(nach, size, true);
+        final var baseUri = uriHelper.getBaseUri(request).toString();
+        final var collectionModel = CollectionModel.of(toModels(delta.fussballvereine(), baseUri));
+        final var deltaUri = UriComponentsBuilder.fromUriString(baseUri + DELTA_PATH)
+            .queryParam(SIZE_PARAM, size)
+            .queryParam(CURSOR_PARAM, delta.cursor().toString())
+            .toUriString();
+        if (delta.hatWeitere()) {
+            collectionModel.add(Link.of(deltaUri, IanaLinkRelations.NEXT));
+        }
+        collectionModel.add(Link.of(deltaUri, SYNC_REL));
+        return ok(collectionModel);
+    }
+
+    /**
+     * Feed der veröffentlichten Änderungen an Fussballvereinen. Ein Client liest ab <code>since=0</code> und
+     * verwendet danach jeweils den zurückgelieferten Wert <code>since</code>, so dass keine Änderung ausgelassen wird.
+     * Mit <code>wait</code> wartet der Request bis zu {@value #MAX_WARTEZEIT} Sekunden auf weitere Änderungen, statt
+     * sofort eine leere Liste zu liefern.
+     *
+     * @param since Position der zuletzt gelesenen Änderung.
+     * @param size Maximale Anzahl an Änderungen.
+     * @param wait Maximale Wartezeit in Sekunden, falls es nach der Position noch keine Änderungen gibt.
+     * @return Die Änderungen nach der Position und der Wert für den nächsten Request.
+     */
+    @GetMapping(path = CHANGES_PATH, produces = APPLICATION_JSON_VALUE)
+    @Operation(summary = "Feed der Aenderungen an Fussballvereinen", tags = "Suchen")
+    @ApiResponse(responseCode = "200", description = "Aenderungen nach der Position")
+    DeferredResult<AenderungenModel> getChanges(
+        @RequestParam(name = SINCE_PARAM, defaultValue = "0") final long since,
+        @RequestParam(name = SIZE_PARAM, defaultValue = "100") final int size,
+        @RequestParam(name = WAIT_PARAM, defaultValue = "0") final int wait
+    ) {
+        log.debug("getChanges: since={}, size={}, wait={}", since, size, wait);
+        final var groesse = Math.max(1, Math.min(size, MAX_SEITENGROESSE));
+        final var wartezeit = Duration.ofSeconds(Math.max(0, Math.min(wait, MAX_WARTEZEIT)));
+        return aenderungenFeed.find(since, groesse, wartezeit);
     }
 
     /**
      * Abfrage, welche Nachnamen es zu einem Präfix gibt.
      *
      * @param prefix Nachname-Präfix als Pfadvariable.
+     * @param limit Optionale maximale Anzahl an Namen.
      * @return Die passenden Nachnamen oder Statuscode 404, falls es keine gibt.
      */
     @GetMapping(path = NAME_PATH + "/{prefix}", produces = APPLICATION_JSON_VALUE)
     @Operation(summary = "Suche Nachnamen mit Praefix", tags = "Suchen")
-    String getNamenByPrefix(@PathVariable final String prefix) {
-        return service.findNamenByPrefix(prefix).toString();
+    String getNamenByPrefix(
+        @PathVariable final String prefix,
+        @RequestParam(required = false) final Integer limit
+    ) {
+        final var max = limit == null ? Integer.MAX_VALUE : Math.max(1, limit);
+        return service.findNamenByPrefix(prefix, max).toString();
     }
 }
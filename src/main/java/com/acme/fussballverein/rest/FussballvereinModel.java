@@ -2,6 +2,7 @@ package com.acme.fussballverein.rest;
 
 import com.acme.fussballverein.entity.Fussballverein;
 import com.acme.fussballverein.entity.Mannschaft;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -12,6 +13,7 @@ import org.springframework.hateoas.server.core.Relation;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
 
 /**
  * Model-Klasse für Spring HATEOAS. @lombok.Data fasst die Annotations @ToString, @EqualsAndHashCode, @Getter, @Setter
@@ -37,7 +39,9 @@ class FussballvereinModel extends RepresentationModel<FussballvereinModel> {
     private final String telefonnummer;
     private final List<Mannschaft> mannschaften;
     private final UUID trainerId;
+    @JsonInclude(NON_NULL)
     private final String trainerName;
+    @JsonInclude(NON_NULL)
     private final String trainerEmail;
 
     FussballvereinModel(final Fussballverein verein) {
@@ -1,13 +1,20 @@
 package com.acme.fussballverein.rest;
 
+import com.acme.fussballverein.service.AnlageErgebnis;
+import com.acme.fussballverein.service.BatchTooLargeException;
 import com.acme.fussballverein.service.ConstraintViolationsException;
 import com.acme.fussballverein.service.EmailExistsException;
+import com.acme.fussballverein.service.FussballvereinImportService;
 import com.acme.fussballverein.service.FussballvereinWriteService;
+import com.acme.fussballverein.service.ImportErgebnis;
+import com.acme.fussballverein.service.VersionOutdatedException;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -19,12 +26,21 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.IntStream;
 import static com.acme.fussballverein.rest.FussballvereinGetController.REST_PATH;
+import static com.acme.fussballverein.rest.ProblemType.BAD_REQUEST;
+import static com.acme.fussballverein.rest.ProblemType.PRECONDITION;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
 import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
 import static org.springframework.http.HttpStatus.PRECONDITION_REQUIRED;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
@@ -32,6 +48,7 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.ResponseEntity.created;
 import static com.acme.fussballverein.rest.FussballvereinGetController.ID_PATTERN;
 import static org.springframework.http.ResponseEntity.noContent;
+import static org.springframework.web.servlet.HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE;
 
 /**
  * Klasse zum Schreiben der Fussballverein Daten.
@@ -47,8 +64,20 @@ public class FussballvereinWriteController {
      */
     static final String PROBLEM_PATH = "/problem/";
     private static final String VERSIONSNUMMER_FEHLT = "Versionsnummer fehlt";
+    private static final String BATCH_PATH = "/batch";
+    private static final String IMPORT_PATH = "/import";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * Präferenz im Header <code>Prefer</code>, um parallele Änderungen serverseitig zusammenzuführen.
+     */
+    private static final String PREFER_MERGE = "merge";
+    private static final String PREFERENCE_APPLIED = "Preference-Applied";
+    private static final String CONFLICTS_METRIC = "http.server.conflicts";
     private final FussballvereinWriteService service;
+    private final FussballvereinImportService importService;
     private final UriHelper uriHelper;
+    private final MeterRegistry meterRegistry;
 
 
     /**
@@ -72,12 +101,60 @@ public class FussballvereinWriteController {
         return created(location).build();
     }
 
+    /**
+     * Mehrere neue Fussballvereine mit einem Request anlegen. Ungültige Fussballvereine oder bereits vorhandene
+     * Emailadressen verhindern nicht das Anlegen der übrigen Fussballvereine. Mehr als
+     * {@link FussballvereinWriteService#MAX_BATCH_SIZE} Fussballvereine werden mit Statuscode 413 abgelehnt.
+     *
+     * @param fussballvereineDTO Liste mit den Data-Transfer-Objekten der Fussballvereine
+     * @return Ein Ergebnis je Fussballverein in derselben Reihenfolge wie im Request-Body
+     */
+    @PostMapping(path = BATCH_PATH, consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    @ResponseBody
+    @Operation(summary = "Mehrere neue Fussballvereine anlegen.", tags = "Neuanlegen")
+    @ApiResponse(responseCode = "200", description = "Ergebnis je Fussballverein")
+    @ApiResponse(responseCode = "400", description = "Syntaktische Fehler im Request-Body")
+    @ApiResponse(responseCode = "413", description = "Zu viele Fussballvereine im Request-Body")
+    List<AnlageErgebnisModel> createMany(@RequestBody final List<FussballvereinDTO> fussballvereineDTO) {
+        log.debug("createMany: {} Fussballvereine", fussballvereineDTO.size());
+        final var fussballvereine = fussballvereineDTO.stream()
+            .map(FussballvereinDTO::toFussballverein)
+            .toList();
+        final var ergebnisse = service.createMany(fussballvereine);
+        return IntStream.range(0, ergebnisse.size())
+            .mapToObj(index -> {
+                final var ergebnis = ergebnisse.get(index);
+                return new AnlageErgebnisModel(index, ergebnis.id(), ergebnis.status(), ergebnis.fehler());
+            })
+            .toList();
+    }
+
+    /**
+     * Fussballvereine mit ihren Mannschaften aus einer CSV-Datei importieren. Der Request-Body wird zeilenweise
+     * gelesen, so dass auch sehr große Dateien nicht vollständig im Hauptspeicher gehalten werden.
+     *
+     * @param request Der Request mit der CSV-Datei als Body
+     * @return Anzahl der importierten Fussballvereine und die abgelehnten Zeilen mit ihren Fehlern
+     * @throws IOException Falls der Request-Body nicht gelesen werden kann
+     */
+    @PostMapping(path = IMPORT_PATH, consumes = TEXT_CSV_VALUE, produces = APPLICATION_JSON_VALUE)
+    @ResponseBody
+    @Operation(summary = "Fussballvereine aus einer CSV-Datei importieren.", tags = "Neuanlegen")
+    @ApiResponse(responseCode = "200", description = "Anzahl importierter und abgelehnter Zeilen")
+    ImportErgebnis importCsv(final HttpServletRequest request) throws IOException {
+        log.debug("importCsv");
+        return importService.importCsv(new InputStreamReader(request.getInputStream(), UTF_8));
+    }
+
     /**
      * Einen vorhandenen Fussballverein-Datensatz überschreiben.
      *
      * @param id ID des zu aktualisierenden Fussballverein.
      * @param fussballvereinDTO Das Fussballverein-Objekt aus dem eingegangenen Request-Body.
      * @param version Version des Fussballvereins.
+     * @param prefer Optional <code>merge</code>, um nur die gesetzten Werte auf die aktuelle Version zu übertragen,
+     *               statt bei einer veralteten Version mit Statuscode 412 abzulehnen. Wurde eines der gesetzten
+     *               Attribute seit der Version geändert, bleibt es bei Statuscode 412.
      * @param request Http-Request des Fussballvereins.
      * @return ResponseEntity vom Typ Fussballverein.
      */
@@ -87,11 +164,23 @@ public class FussballvereinWriteController {
     @ApiResponse(responseCode = "204", description = "Aktualisiert")
     @ApiResponse(responseCode = "400", description = "Syntaktische Fehler im Request-Body")
     @ApiResponse(responseCode = "404", description = "Fussballverein nicht vorhanden")
+    @ApiResponse(responseCode = "412", description = "Versionsnummer veraltet")
     @ApiResponse(responseCode = "422", description = "Ungültige Werte oder Email vorhanden")
     ResponseEntity<Void> update(@PathVariable final UUID id, @RequestBody final FussballvereinDTO fussballvereinDTO,
                 @RequestHeader("If-Match") final Optional<String> version,
+                @RequestHeader("Prefer") final Optional<String> prefer,
                 final HttpServletRequest request) {
         final int versionInt = getVersion(version, request);
+        if (prefer.filter(PREFER_MERGE::equalsIgnoreCase).isPresent()) {
+            final var ergebnis = service.updateMerge(fussballvereinDTO.toFussballverein(), id, versionInt);
+            if (ergebnis.konflikt()) {
+                countConflict(request, "merged");
+            }
+            return noContent()
+                .eTag("\"" + ergebnis.fussballverein().getVersion() + '"')
+                .header(PREFERENCE_APPLIED, PREFER_MERGE)
+                .build();
+        }
         final var fussballverein = service.update(fussballvereinDTO.toFussballverein(), id, versionInt);
         return noContent().eTag("\"" + fussballverein.getVersion() + '"').build();
     }
@@ -124,9 +213,7 @@ public class FussballvereinWriteController {
         log.debug("onConstraintViolations: {}", ex.getMessage());
         final var vereinViolations = ex.getViolations()
             .stream()
-            .map(violation -> violation.getPropertyPath() + ": " +
-                violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName() + " " +
-                violation.getMessage())
+            .map(AnlageErgebnis::toMessage)
             .toList();
         log.trace("onConstraintViolations: {}", vereinViolations);
         final String detail;
@@ -142,6 +229,33 @@ public class FussballvereinWriteController {
         return problemDetail;
     }
 
+    /**
+     * ExceptionHandler, wenn die Versionsnummer veraltet ist oder eine parallele Änderung beim Speichern erkannt
+     * wurde. Beide Fälle werden einheitlich mit Statuscode 412 beantwortet und als Konflikt gezählt.
+     *
+     * @param ex Exception
+     * @param request HTTP Request
+     * @return ProblemDetail
+     */
+    @ExceptionHandler({VersionOutdatedException.class, OptimisticLockingFailureException.class})
+    ProblemDetail onConflict(final RuntimeException ex, final HttpServletRequest request) {
+        log.debug("onConflict: {}", ex.getMessage());
+        countConflict(request, "rejected");
+        final var problemDetail = ProblemDetail.forStatusAndDetail(
+            PRECONDITION_FAILED,
+            "Der Fussballverein wurde zwischenzeitlich geaendert."
+        );
+        problemDetail.setType(URI.create(PROBLEM_PATH + PRECONDITION.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
+    private void countConflict(final HttpServletRequest request, final String outcome) {
+        final var pattern = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+        final var endpoint = request.getMethod() + ' ' + (pattern == null ? request.getRequestURI() : pattern);
+        meterRegistry.counter(CONFLICTS_METRIC, "endpoint", endpoint, "outcome", outcome).increment();
+    }
+
     @ExceptionHandler
     ProblemDetail onEmailExists(
         final EmailExistsException ex,
@@ -155,8 +269,32 @@ public class FussballvereinWriteController {
         return problemDetail;
     }
 
+    /**
+     * ExceptionHandler, wenn mit <code>POST /rest/batch</code> zu viele Fussballvereine angelegt werden sollen.
+     *
+     * @param ex Exception
+     * @param request HTTP Request
+     * @return ProblemDetail mit Statuscode 413
+     */
+    @ExceptionHandler
+    ProblemDetail onBatchTooLarge(final BatchTooLargeException ex, final HttpServletRequest request) {
+        log.debug("onBatchTooLarge: {}", ex.getMessage());
+        final var problemDetail = ProblemDetail.forStatusAndDetail(PAYLOAD_TOO_LARGE, ex.getMessage());
+        problemDetail.setType(URI.create(PROBLEM_PATH + BAD_REQUEST.getValue()));
+        problemDetail.setInstance(URI.create(request.getRequestURL().toString()));
+        return problemDetail;
+    }
+
+    /**
+     * Die Versionsnummer aus dem ETag im Header <code>If-Match</code> ermitteln.
+     *
+     * @param versionOpt Der Header <code>If-Match</code>, z.B. <code>"0"</code>
+     * @param request HTTP Request für die URI in einer Fehlermeldung
+     * @return Die Versionsnummer
+     * @throws VersionInvalidException Falls der Header fehlt oder kein gültiges ETag enthält.
+     */
     @SuppressWarnings({"MagicNumber", "RedundantSuppression"})
-    private int getVersion(final Optional<String> versionOpt, final HttpServletRequest request) {
+    static int getVersion(final Optional<String> versionOpt, final HttpServletRequest request) {
         if (versionOpt.isEmpty()) {
             throw new VersionInvalidException(
                 PRECONDITION_REQUIRED,
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Konfiguration für das Veröffentlichen des Änderungsprotokolls mit dem Präfix <code>app.aenderung</code>.
+ *
+ * @param batchSize Maximale Anzahl an Änderungen, die in einer Transaktion veröffentlicht werden.
+ * @param pollInterval Wartezeit, falls keine weiteren Änderungen zur Veröffentlichung anstehen.
+ * @param aufbewahrung Zeitspanne, nach der veröffentlichte Änderungen gelöscht werden. Ein Client des Feeds
+ *                     <code>GET /rest/changes</code>, der länger nicht gelesen hat, muss vollständig abgleichen.
+ * @param aufraeumIntervall Zeitspanne zwischen zwei Durchläufen zum Löschen alter Änderungen.
+ */
+@ConfigurationProperties(prefix = "app.aenderung")
+public record AenderungProperties(
+    @DefaultValue("100") int batchSize,
+    @DefaultValue("1s") Duration pollInterval,
+    @DefaultValue("7d") Duration aufbewahrung,
+    @DefaultValue("1h") Duration aufraeumIntervall
+) {
+}
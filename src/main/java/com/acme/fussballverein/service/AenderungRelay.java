@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.entity.Aenderung;
+import com.acme.fussballverein.repository.AenderungRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Relay für das Änderungsprotokoll ("Transactional Outbox"): ein Virtual Thread liest die noch nicht
+ * veröffentlichten Änderungen blockweise, vergibt fortlaufende Positionen und veröffentlicht sie als
+ * {@link AenderungenEvent}, das die wartenden Requests beim Feed <code>GET /rest/changes</code> beantwortet. Die
+ * Schreibzugriffe warten dadurch weder auf die Empfänger noch auf den Relay. Veröffentlichte Änderungen werden nach
+ * {@link AenderungProperties#aufbewahrung()} gelöscht.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class AenderungRelay {
+    // Schluessel der Advisory-Sperre, damit bei mehreren Instanzen nur ein Relay Positionen vergibt
+    private static final long SPERRE = 0x4175_6467L;
+
+    private final AenderungRepository repo;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AenderungProperties props;
+    // Virtual Threads, siehe ThreadConfig
+    private final AsyncTaskExecutor taskExecutor;
+
+    private volatile boolean aktiv;
+    // nur im Thread des Relay verwendet
+    private long naechstesAufraeumen;
+
+    /**
+     * Den Relay nach dem Start der Anwendung in einem eigenen Virtual Thread starten.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void starten() {
+        aktiv = true;
+        naechstesAufraeumen = System.nanoTime();
+        taskExecutor.execute(this::laufen);
+        log.info("starten: batchSize={}, pollInterval={}", props.batchSize(), props.pollInterval());
+    }
+
+    /**
+     * Den Relay beim Herunterfahren beenden.
+     */
+    @PreDestroy
+    void stoppen() {
+        aktiv = false;
+    }
+
+    private void laufen() {
+        while (aktiv) {
+            try {
+                // bei einem vollen Block sofort weitermachen, sonst warten (Sleep blockiert keinen Plattform-Thread)
+                if (veroeffentlichen() < props.batchSize()) {
+                    aufraeumenFaellig();
+                    Thread.sleep(props.pollInterval());
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final RuntimeException ex) {
+                log.warn("laufen: {}", ex.getMessage());
+                try {
+                    Thread.sleep(props.pollInterval());
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Einen Block noch nicht veröffentlichter Änderungen in einer Transaktion veröffentlichen. Scheitert der Commit,
+     * wird der Block beim nächsten Durchlauf erneut veröffentlicht ("at least once").
+     *
+     * @return Anzahl der veröffentlichten Änderungen
+     */
+    int veroeffentlichen() {
+        final List<Aenderung> aenderungen = transactionTemplate.execute(status -> {
+            if (!repo.tryLock(SPERRE)) {
+                return List.of();
+            }
+            final var offen = repo.findUnveroeffentlicht(PageRequest.ofSize(props.batchSize()));
+            if (offen.isEmpty()) {
+                return offen;
+            }
+            final var positionen = repo.nextPositionen(offen.size());
+            final var jetzt = LocalDateTime.now();
+            for (var i = 0; i < offen.size(); i++) {
+                final var aenderung = offen.get(i);
+                aenderung.setPosition(positionen.get(i));
+                aenderung.setVeroeffentlicht(jetzt);
+            }
+            eventPublisher.publishEvent(new AenderungenEvent(offen));
+            return offen;
+        });
+        if (aenderungen == null || aenderungen.isEmpty()) {
+            return 0;
+        }
+        log.debug("veroeffentlichen: {} Aenderungen bis Position {}", aenderungen.size(),
+            aenderungen.get(aenderungen.size() - 1).getPosition());
+        return aenderungen.size();
+    }
+
+    private void aufraeumenFaellig() {
+        final var jetzt = System.nanoTime();
+        if (jetzt - naechstesAufraeumen < 0) {
+            return;
+        }
+        naechstesAufraeumen = jetzt + props.aufraeumIntervall().toNanos();
+        final var anzahl = aufraeumen(LocalDateTime.now().minus(props.aufbewahrung()));
+        if (anzahl > 0) {
+            log.info("aufraeumen: {} veroeffentlichte Aenderungen geloescht", anzahl);
+        }
+    }
+
+    /**
+     * Veröffentlichte Änderungen blockweise löschen, die vor einem Zeitpunkt veröffentlicht wurden. Bei mehreren
+     * Instanzen löscht nur diejenige, die die Advisory-Sperre des Relay erhält.
+     *
+     * @param bis Zeitpunkt, vor dem die Änderungen veröffentlicht wurden
+     * @return Anzahl der gelöschten Änderungen
+     */
+    int aufraeumen(final LocalDateTime bis) {
+        var summe = 0;
+        while (aktiv) {
+            final Integer anzahl = transactionTemplate.execute(
+                status -> repo.tryLock(SPERRE) ? repo.deleteVeroeffentlichtVor(bis, props.batchSize()) : 0
+            );
+            if (anzahl == null || anzahl == 0) {
+                break;
+            }
+            summe += anzahl;
+        }
+        return summe;
+    }
+}
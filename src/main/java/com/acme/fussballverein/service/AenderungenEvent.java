@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.entity.Aenderung;
+
+import java.util.List;
+
+/**
+ * Event mit einem Block veröffentlichter Änderungen, aufsteigend nach ihrer Position, z.B. für die wartenden Requests
+ * beim Feed <code>GET /rest/changes</code>. Ein Block kann nach einem Fehler erneut veröffentlicht werden, weshalb
+ * Empfänger die Position zur Duplikaterkennung verwenden.
+ *
+ * @param aenderungen Die veröffentlichten Änderungen.
+ */
+public record AenderungenEvent(List<Aenderung> aenderungen) {
+}
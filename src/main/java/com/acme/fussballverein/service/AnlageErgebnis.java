@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import jakarta.validation.ConstraintViolation;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ergebnis für einen einzelnen Fussballverein beim Anlegen mehrerer Fussballvereine.
+ *
+ * @param fussballverein Der Fussballverein, nach erfolgreichem Anlegen mit generierter ID
+ * @param violations Die verletzten Constraints oder eine leere Collection
+ * @param emailExists true, falls die Emailadresse bereits existiert oder mehrfach im Request vorkommt
+ */
+public record AnlageErgebnis(
+    Fussballverein fussballverein,
+    Collection<ConstraintViolation<Fussballverein>> violations,
+    boolean emailExists
+) {
+    /**
+     * Abfrage, ob der Fussballverein angelegt wurde.
+     *
+     * @return true, falls keine Constraints verletzt sind und die Emailadresse neu ist
+     */
+    public boolean isAngelegt() {
+        return violations.isEmpty() && !emailExists;
+    }
+
+    /**
+     * Die generierte ID des angelegten Fussballvereins.
+     *
+     * @return Die ID oder null, falls der Fussballverein nicht angelegt wurde
+     */
+    public UUID id() {
+        return isAngelegt() ? fussballverein.getId() : null;
+    }
+
+    /**
+     * Der Status für die REST- und die GraphQL-Schnittstelle.
+     *
+     * @return <code>CREATED</code>, <code>EMAIL_EXISTS</code> oder <code>INVALID</code>
+     */
+    public String status() {
+        if (isAngelegt()) {
+            return "CREATED";
+        }
+        return emailExists ? "EMAIL_EXISTS" : "INVALID";
+    }
+
+    /**
+     * Die Fehlermeldungen für die REST- und die GraphQL-Schnittstelle.
+     *
+     * @return Die Fehlermeldungen oder eine leere Liste, falls der Fussballverein angelegt wurde
+     */
+    public List<String> fehler() {
+        if (emailExists) {
+            return List.of("Fussballverein mit der Email '" + fussballverein.getEmail() + "' existiert bereits.");
+        }
+        return violations.stream()
+            .map(AnlageErgebnis::toMessage)
+            .toList();
+    }
+
+    /**
+     * Fehlermeldung zu einem verletzten Constraint mit Property-Pfad und Name der Annotation.
+     *
+     * @param violation Das verletzte Constraint
+     * @return Die Fehlermeldung
+     */
+    public static String toMessage(final ConstraintViolation<Fussballverein> violation) {
+        return violation.getPropertyPath() + ": " +
+            violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName() + " " +
+            violation.getMessage();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import lombok.Getter;
+
+/**
+ * Exception, falls mit einem Request mehr Fussballvereine angelegt werden sollen als erlaubt.
+ */
+@Getter
+public class BatchTooLargeException extends RuntimeException {
+    /**
+     * Anzahl der Fussballvereine im Request.
+     */
+    private final int anzahl;
+
+    /**
+     * Maximale Anzahl an Fussballvereinen je Request.
+     */
+    private final int max;
+
+    BatchTooLargeException(final int anzahl, final int max) {
+        super("Es koennen hoechstens " + max + " Fussballvereine angelegt werden, aber nicht " + anzahl);
+        this.anzahl = anzahl;
+        this.max = max;
+    }
+}
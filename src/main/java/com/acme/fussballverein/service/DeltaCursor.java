@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.UUID;
+
+/**
+ * Cursor für den Delta-Abgleich: Zeitstempel der letzten Änderung und ID des zuletzt gelieferten Fussballvereins.
+ * Als String hat der Cursor das Format <code>2024-01-31T12:00:00.123456_&lt;id&gt;</code>.
+ *
+ * @param aktualisiert Zeitstempel der letzten Änderung
+ * @param id ID des zuletzt gelieferten Fussballvereins
+ */
+public record DeltaCursor(LocalDateTime aktualisiert, UUID id) {
+    // kleiner als jede generierte UUID, so dass alle Aenderungen zum Zeitstempel geliefert werden
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+    private static final char TRENNER = '_';
+
+    /**
+     * Cursor für den ersten Abgleich, d.h. für alle Fussballvereine.
+     */
+    public static final DeltaCursor ANFANG = ab(LocalDateTime.of(1900, 1, 1, 0, 0));
+
+    /**
+     * Cursor für alle Änderungen ab einem Zeitpunkt.
+     *
+     * @param seit Zeitpunkt, ab dem die Änderungen geliefert werden
+     * @return Der Cursor
+     */
+    public static DeltaCursor ab(final LocalDateTime seit) {
+        return new DeltaCursor(seit, MIN_ID);
+    }
+
+    /**
+     * Einen Cursor aus seiner String-Darstellung einlesen.
+     *
+     * @param cursor Der Cursor als String
+     * @return Der Cursor
+     * @throws IllegalArgumentException Falls der String kein gültiger Cursor ist.
+     */
+    public static DeltaCursor parse(final String cursor) {
+        final var pos = cursor.lastIndexOf(TRENNER);
+        if (pos < 0) {
+            throw new IllegalArgumentException("Ungueltiger Cursor: " + cursor);
+        }
+        try {
+            return new DeltaCursor(
+                LocalDateTime.parse(cursor.substring(0, pos)),
+                UUID.fromString(cursor.substring(pos + 1))
+            );
+        } catch (final DateTimeParseException ex) {
+            throw new IllegalArgumentException("Ungueltiger Cursor: " + cursor, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return aktualisiert.toString() + TRENNER + id;
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.entity.Mannschaft;
+import com.acme.fussballverein.repository.FussballvereinRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.acme.fussballverein.entity.AenderungTyp.ERZEUGT;
+
+/**
+ * Import von Fussballvereinen mit ihren Mannschaften aus einer CSV-Datei. Die Zeilen werden einzeln gelesen und
+ * validiert, gültige Zeilen werden blockweise mit <code>COPY FROM STDIN</code> von PostgreSQL geladen.
+ * <p>
+ * Format je Zeile nach einer Kopfzeile, getrennt durch <code>;</code>:
+ * <code>name;email;gruendungsdatum;plz;telefonnummer;trainerId;mannschaften</code>, wobei die Mannschaften als
+ * <code>jugend:anzahlMitglieder</code> durch <code>|</code> getrennt sind, z.B. <code>A:18|B:20</code>.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FussballvereinImportService {
+    private static final int BLOCK = 5000;
+    private static final int MAX_ABGELEHNTE_ZEILEN = 1000;
+    private static final int MIN_SPALTEN = 6;
+    private static final int MAX_SPALTEN = 7;
+    private static final String TRENNER = ";";
+
+    private static final String COPY_FUSSBALLVEREIN = """
+        COPY fussballverein (id, version, name, email, gruendungsdatum, plz, telefonnummer, erzeugt, aktualisiert,
+                             trainer_id)
+        FROM STDIN WITH (FORMAT csv)
+        """;
+    private static final String COPY_MANNSCHAFT = """
+        COPY mannschaft (id, jugend, anzahl_mitglieder, fussballverein_id, idx)
+        FROM STDIN WITH (FORMAT csv)
+        """;
+    private static final String COPY_AENDERUNG = """
+        COPY aenderung (id, fussballverein_id, typ, erzeugt)
+        FROM STDIN WITH (FORMAT csv)
+        """;
+
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final FussballvereinRepository repo;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Fussballvereine aus einer CSV-Datei importieren, ohne die Datei vollständig im Hauptspeicher zu halten.
+     *
+     * @param reader Die CSV-Datei einschließlich Kopfzeile
+     * @return Anzahl der importierten Fussballvereine und die abgelehnten Zeilen
+     * @throws IOException Falls die CSV-Datei nicht gelesen werden kann
+     */
+    public ImportErgebnis importCsv(final Reader reader) throws IOException {
+        final var lauf = new Lauf();
+        final var zeilen = new BufferedReader(reader);
+        // Kopfzeile
+        var zeile = zeilen.readLine();
+        var nummer = 1L;
+        while ((zeile = zeilen.readLine()) != null) {
+            nummer++;
+            if (!zeile.isBlank()) {
+                lauf.zeile(nummer, zeile);
+            }
+        }
+        lauf.importBlock();
+        log.info("importCsv: {} importiert, {} abgelehnt", lauf.importiert, lauf.abgelehnt);
+        return new ImportErgebnis(lauf.importiert, lauf.abgelehnt, lauf.abgelehnteZeilen);
+    }
+
+    private Fussballverein parse(final String zeile, final List<String> fehler) {
+        final var spalten = zeile.split(TRENNER, -1);
+        if (spalten.length < MIN_SPALTEN || spalten.length > MAX_SPALTEN) {
+            fehler.add("Anzahl Spalten: " + spalten.length);
+            return null;
+        }
+        final var jetzt = LocalDateTime.now();
+        final var fussballverein = Fussballverein.builder()
+            .id(UUID.randomUUID())
+            .name(leerAlsNull(spalten[0]))
+            .email(leerAlsNull(spalten[1]))
+            .plz(leerAlsNull(spalten[3]))
+            .telefonnummer(leerAlsNull(spalten[4]))
+            .erzeugt(jetzt)
+            .aktualisiert(jetzt)
+            .mannschaften(new ArrayList<>())
+            .build();
+        try {
+            final var gruendungsdatum = leerAlsNull(spalten[2]);
+            fussballverein.setGruendungsdatum(gruendungsdatum == null ? null : LocalDate.parse(gruendungsdatum));
+        } catch (final DateTimeParseException ex) {
+            fehler.add("gruendungsdatum: " + spalten[2]);
+        }
+        try {
+            final var trainerId = leerAlsNull(spalten[5]);
+            fussballverein.setTrainerId(trainerId == null ? null : UUID.fromString(trainerId));
+        } catch (final IllegalArgumentException ex) {
+            fehler.add("trainerId: " + spalten[5]);
+        }
+        if (spalten.length == MAX_SPALTEN && !spalten[6].isBlank()) {
+            for (final var mannschaftStr : spalten[6].split("\\|")) {
+                parseMannschaft(mannschaftStr, fussballverein, fehler);
+            }
+        }
+        return fussballverein;
+    }
+
+    private static void parseMannschaft(
+        final String mannschaftStr,
+        final Fussballverein fussballverein,
+        final List<String> fehler
+    ) {
+        final var teile = mannschaftStr.split(":", -1);
+        try {
+            if (teile.length != 2) {
+                throw new NumberFormatException();
+            }
+            final var mannschaft = Mannschaft.builder()
+                .id(UUID.randomUUID())
+                .jugend(teile[0].strip())
+                .anzahlMitglieder(Integer.parseInt(teile[1].strip()))
+                .fussballverein(fussballverein)
+                .build();
+            fussballverein.getMannschaften().add(mannschaft);
+        } catch (final NumberFormatException ex) {
+            fehler.add("mannschaften: " + mannschaftStr);
+        }
+    }
+
+    private void validate(final Fussballverein fussballverein, final List<String> fehler) {
+        validator.validate(fussballverein)
+            .forEach(violation -> fehler.add(violation.getPropertyPath() + ": " + violation.getMessage()));
+        fussballverein.getMannschaften().forEach(mannschaft -> validator.validate(mannschaft)
+            .forEach(violation -> fehler.add("mannschaften." + violation.getPropertyPath() + ": " +
+                violation.getMessage())));
+        // NOT NULL in der DB-Tabelle
+        if (fussballverein.getTelefonnummer() == null) {
+            fehler.add("telefonnummer: darf nicht leer sein");
+        }
+    }
+
+    private void copy(final List<Fussballverein> fussballvereine) throws SQLException, IOException {
+        final var vereineCsv = new StringBuilder(fussballvereine.size() * 160);
+        final var mannschaftenCsv = new StringBuilder(fussballvereine.size() * 80);
+        final var aenderungenCsv = new StringBuilder(fussballvereine.size() * 100);
+        for (final var verein : fussballvereine) {
+            csv(vereineCsv, verein.getId(), 0, verein.getName(), verein.getEmail(), verein.getGruendungsdatum(),
+                verein.getPlz(), verein.getTelefonnummer(), verein.getErzeugt(), verein.getAktualisiert(),
+                verein.getTrainerId());
+            csv(aenderungenCsv, UUID.randomUUID(), verein.getId(), ERZEUGT, verein.getErzeugt());
+            final var mannschaften = verein.getMannschaften();
+            for (var idx = 0; idx < mannschaften.size(); idx++) {
+                final var mannschaft = mannschaften.get(idx);
+                csv(mannschaftenCsv, mannschaft.getId(), mannschaft.getJugend(), mannschaft.getAnzahlMitglieder(),
+                    verein.getId(), idx);
+            }
+        }
+
+        final var connection = DataSourceUtils.getConnection(dataSource);
+        final var copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        copyManager.copyIn(COPY_FUSSBALLVEREIN, new StringReader(vereineCsv.toString()));
+        copyManager.copyIn(COPY_MANNSCHAFT, new StringReader(mannschaftenCsv.toString()));
+        copyManager.copyIn(COPY_AENDERUNG, new StringReader(aenderungenCsv.toString()));
+    }
+
+    // CSV-Zeile fuer COPY: jeder Wert in Anfuehrungszeichen, null als leeres Feld ohne Anfuehrungszeichen
+    private static void csv(final StringBuilder sb, final Object... werte) {
+        for (var i = 0; i < werte.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            if (werte[i] != null) {
+                sb.append('"').append(werte[i].toString().replace("\"", "\"\"")).append('"');
+            }
+        }
+        sb.append('\n');
+    }
+
+    private static String leerAlsNull(final String wert) {
+        final var strip = wert.strip();
+        return strip.isEmpty() ? null : strip;
+    }
+
+    private record Kandidat(long nummer, Fussballverein fussballverein) {
+    }
+
+    /**
+     * Zustand eines einzelnen Imports.
+     */
+    private final class Lauf {
+        private final Set<String> emails = new HashSet<>();
+        private final List<Kandidat> block = new ArrayList<>(BLOCK);
+        private final List<ImportErgebnis.Zeile> abgelehnteZeilen = new ArrayList<>();
+        private long importiert;
+        private long abgelehnt;
+
+        void zeile(final long nummer, final String zeile) {
+            final var fehler = new ArrayList<String>();
+            final var fussballverein = parse(zeile, fehler);
+            if (fussballverein != null && fehler.isEmpty()) {
+                validate(fussballverein, fehler);
+            }
+            if (fehler.isEmpty() && !emails.add(fussballverein.getEmail())) {
+                fehler.add("email: mehrfach in der CSV-Datei");
+            }
+            if (!fehler.isEmpty()) {
+                ablehnen(nummer, fehler);
+                return;
+            }
+            block.add(new Kandidat(nummer, fussballverein));
+            if (block.size() == BLOCK) {
+                importBlock();
+            }
+        }
+
+        void importBlock() {
+            if (block.isEmpty()) {
+                return;
+            }
+            final var vorhanden = new HashSet<>(repo.findEmailsIn(
+                block.stream().map(kandidat -> kandidat.fussballverein().getEmail()).toList()
+            ));
+            final var kandidaten = new ArrayList<Kandidat>(block.size());
+            block.forEach(kandidat -> {
+                if (vorhanden.contains(kandidat.fussballverein().getEmail())) {
+                    ablehnen(kandidat.nummer(), List.of("email: existiert bereits"));
+                } else {
+                    kandidaten.add(kandidat);
+                }
+            });
+
+            final var vorher = importiert;
+            laden(kandidaten);
+            if (importiert > vorher) {
+                // COPY umgeht Hibernate: gecachte Query-Ergebnisse, z.B. zu einer Trainer-ID, sind jetzt veraltet
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+            }
+            block.clear();
+        }
+
+        /**
+         * Kandidaten in einer Transaktion mit COPY laden. Scheitert COPY, z.B. an einer inzwischen vergebenen
+         * Emailadresse, werden beide Hälften getrennt geladen, bis nur die fehlerhaften Zeilen abgelehnt sind.
+         *
+         * @param kandidaten Die zu ladenden Zeilen
+         */
+        private void laden(final List<Kandidat> kandidaten) {
+            if (kandidaten.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try {
+                        copy(kandidaten.stream().map(Kandidat::fussballverein).toList());
+                    } catch (final SQLException | IOException ex) {
+                        throw new ImportException(ex);
+                    }
+                    kandidaten.forEach(kandidat -> {
+                        final var verein = kandidat.fussballverein();
+                        eventPublisher.publishEvent(new VereinsnameEvent(verein.getId(), null, verein.getName()));
+                    });
+                });
+                importiert += kandidaten.size();
+            } catch (final ImportException ex) {
+                if (kandidaten.size() == 1) {
+                    log.debug("laden: Zeile {}: {}", kandidaten.get(0).nummer(), ex.getCause().getMessage());
+                    ablehnen(kandidaten.get(0).nummer(), List.of("COPY: " + ex.getCause().getMessage()));
+                    return;
+                }
+                final var mitte = kandidaten.size() / 2;
+                laden(kandidaten.subList(0, mitte));
+                laden(kandidaten.subList(mitte, kandidaten.size()));
+            }
+        }
+
+        private void ablehnen(final long nummer, final List<String> fehler) {
+            abgelehnt++;
+            if (abgelehnteZeilen.size() < MAX_ABGELEHNTE_ZEILEN) {
+                abgelehnteZeilen.add(new ImportErgebnis.Zeile(nummer, fehler));
+            }
+        }
+    }
+
+    /**
+     * Fehler beim Laden mit COPY, der die Transaktion mit allen Zeilen zurückrollt.
+     */
+    private static final class ImportException extends RuntimeException {
+        ImportException(final Exception cause) {
+            super(cause);
+        }
+    }
+}
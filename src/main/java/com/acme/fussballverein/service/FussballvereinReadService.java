@@ -1,27 +1,41 @@
 package com.acme.fussballverein.service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import com.acme.fussballverein.entity.Aenderung;
 import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.entity.Mannschaft;
+import com.acme.fussballverein.repository.AenderungRepository;
 import com.acme.fussballverein.repository.FussballvereinRepository;
 import com.acme.fussballverein.repository.PredicateBuilder;
 import com.acme.fussballverein.repository.Trainer;
-import com.acme.fussballverein.repository.TrainerRestRepository;
+import com.acme.fussballverein.repository.TrainerProperties;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.NonNull;
-import org.springframework.graphql.client.FieldAccessException;
-import org.springframework.graphql.client.GraphQlTransportException;
-import org.springframework.graphql.client.HttpGraphQlClient;
-import org.springframework.http.ResponseEntity;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClientException;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
-import static org.springframework.http.HttpHeaders.AUTHORIZATION;
-import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import static org.springframework.transaction.annotation.Propagation.SUPPORTS;
 
 /**
  * ReadService für Fussballvereine.
@@ -29,51 +43,262 @@ import static org.springframework.http.HttpStatus.NOT_MODIFIED;
  */
 @Service
 @Transactional(readOnly = true)
+@Timed(value = "fussballverein.service", histogram = true)
 @RequiredArgsConstructor
 @Slf4j
 public class FussballvereinReadService {
+    /**
+     * Maximale Seitengröße bei der Keyset-Pagination.
+     */
+    public static final int MAX_SEITENGROESSE = 100;
+
+    /**
+     * Anzahl Fussballvereine, nach denen beim Export der Persistence Context geleert wird.
+     */
+    private static final int EXPORT_BLOCK = 500;
+
+    /**
+     * Beim Delta-Abgleich werden nur Änderungen geliefert, die älter als diese Zeitspanne sind. Der Zeitstempel
+     * <code>aktualisiert</code> wird vor dem Commit gesetzt, so dass eine noch laufende Transaktion sonst hinter
+     * einem bereits gelieferten Cursor sichtbar werden könnte.
+     */
+    private static final Duration DELTA_VERZOEGERUNG = Duration.ofSeconds(30);
+
     private final FussballvereinRepository repo;
-    private final TrainerRestRepository trainerRepository;
-    private final HttpGraphQlClient graphQlClient;
+    private final TrainerClient trainerClient;
+    private final TrainerProperties trainerProps;
     private final PredicateBuilder predicateBuilder;
+    private final EntityManager entityManager;
+    private final NamenIndex namenIndex;
+    private final AenderungRepository aenderungRepo;
 
     /**
      * Gibt Fussballverein mit bestimmter id zurück.
      *
      * @param id id des Fussballvereins
+     * @param mitTrainer true, falls Name und Emailadresse des Trainers ermittelt werden sollen
      * @return Fussballverein zu id.
      */
-    public Fussballverein findByID(final UUID id) {
+    public Fussballverein findByID(final UUID id, final boolean mitTrainer) {
         final var fussballvereinOpt = repo.findById(id);
         if (fussballvereinOpt.isEmpty()) {
             throw new NotFoundException();
         }
 
         final var fussballverein = fussballvereinOpt.orElseThrow(NotFoundException::new);
-        final var name = findTrainerById(fussballverein.getTrainerId()).name();
-        fussballverein.setTrainerName(name);
-        final var email = findEmailById(fussballverein.getTrainerId());
-        fussballverein.setTrainerEmail(email);
+        final var trainerId = fussballverein.getTrainerId();
+        if (mitTrainer && trainerId != null) {
+            final var trainer = trainerClient.findById(trainerId);
+            fussballverein.setTrainerName(trainer.name());
+            fussballverein.setTrainerEmail(trainer.email());
+        }
         return fussballverein;
     }
 
+    /**
+     * Einen Fussballverein ermitteln, ohne seine Mannschaften zu laden, z.B. wenn sie bei GraphQL gebündelt mit
+     * {@link #findMannschaften(Collection)} gelesen werden.
+     *
+     * @param id id des Fussballvereins
+     * @return Fussballverein zu id.
+     * @throws NotFoundException Falls es keinen Fussballverein zu id gibt.
+     */
+    public Fussballverein findByIdOhneMannschaften(final UUID id) {
+        log.debug("findByIdOhneMannschaften: id={}", id);
+        // EntityManager statt FussballvereinRepository.findById, das den EntityGraph mit den Mannschaften verwendet
+        final var fussballverein = entityManager.find(Fussballverein.class, id);
+        if (fussballverein == null) {
+            throw new NotFoundException(id);
+        }
+        return fussballverein;
+    }
+
+    /**
+     * Nur die Versionsnummer eines Fussballvereins ermitteln, ohne Mannschaften und ohne Trainerdaten.
+     *
+     * @param id id des Fussballvereins
+     * @return Optional mit der Versionsnummer oder leeres Optional, falls es den Fussballverein nicht gibt
+     */
+    public Optional<Integer> findVersionById(final UUID id) {
+        log.trace("findVersionById: id={}", id);
+        return repo.findVersionById(id);
+    }
+
     /**
      * Alle Fussballvereine ermitteln.
      *
+     * @param mitTrainer true, falls Name und Emailadresse der Trainer ermittelt werden sollen
      * @return Alle Fussballvereine.
      */
-    public Collection<Fussballverein> findAll() {
+    public Collection<Fussballverein> findAll(final boolean mitTrainer) {
         final var fussballvereine = repo.findAll();
-        fussballvereine.forEach(fussballverein -> {
-            final var trainerId = fussballverein.getTrainerId();
-            final var trainer = findTrainerById(trainerId);
-            final var email = findEmailById(trainerId);
-            fussballverein.setTrainerName(trainer.name());
-            fussballverein.setTrainerEmail(email);
-        });
+        if (mitTrainer) {
+            setTrainer(fussballvereine);
+        }
         return fussballvereine;
     }
 
+    /**
+     * Eine Seite von Fussballvereinen mit Keyset-Pagination ermitteln: es werden <code>size + 1</code> Datensätze
+     * nach dem Cursor gelesen, um ohne COUNT-Abfrage festzustellen, ob es eine weitere Seite gibt.
+     *
+     * @param after Die ID des letzten Fussballvereins der vorherigen Seite oder null für die erste Seite
+     * @param size Die Seitengröße, höchstens {@link #MAX_SEITENGROESSE}
+     * @param mitMannschaften true, falls die Mannschaften mitgeladen werden sollen
+     * @param mitTrainer true, falls Name und Emailadresse der Trainer ermittelt werden sollen
+     * @return Die Seite mit den Fussballvereinen
+     */
+    public Seite findSeite(
+        final UUID after,
+        final int size,
+        final boolean mitMannschaften,
+        final boolean mitTrainer
+    ) {
+        log.debug("findSeite: after={}, size={}", after, size);
+        final var groesse = Math.max(1, Math.min(size, MAX_SEITENGROESSE));
+        final var pageable = PageRequest.ofSize(groesse + 1);
+        final var vereine = after == null ? repo.findErsteSeite(pageable) : repo.findSeiteNach(after, pageable);
+        final var hatWeitere = vereine.size() > groesse;
+        final var fussballvereine = hatWeitere ? vereine.subList(0, groesse) : vereine;
+
+        if (mitMannschaften && !fussballvereine.isEmpty()) {
+            // initialisiert die Mannschaften der bereits geladenen Fussballvereine mit 1 weiteren Abfrage
+            repo.findMitMannschaften(fussballvereine.stream().map(Fussballverein::getId).toList());
+        }
+        if (mitTrainer) {
+            setTrainer(fussballvereine);
+        }
+        return new Seite(fussballvereine, hatWeitere);
+    }
+
+    /**
+     * Die nach einem Cursor geänderten Fussballvereine seitenweise ermitteln, sortiert nach
+     * <code>(aktualisiert, id)</code>. Gelöschte Fussballvereine sind im Feed der Änderungen enthalten.
+     *
+     * @param nach Der Cursor des vorherigen Abgleichs
+     * @param size Gewünschte Seitengröße, höchstens {@link #MAX_SEITENGROESSE}
+     * @param mitMannschaften true, falls die Mannschaften gleich mitgeladen werden sollen
+     * @return Die geänderten Fussballvereine mit dem Cursor für den nächsten Abgleich
+     */
+    public Delta findDelta(final DeltaCursor nach, final int size, final boolean mitMannschaften) {
+        log.debug("findDelta: nach={}, size={}", nach, size);
+        final var groesse = Math.max(1, Math.min(size, MAX_SEITENGROESSE));
+        final var bis = LocalDateTime.now().minus(DELTA_VERZOEGERUNG);
+        final List<Fussballverein> vereine;
+        try (var stream = repo.streamGeaendertNach(nach.aktualisiert(), nach.id(), bis,
+            PageRequest.ofSize(groesse + 1))) {
+            vereine = stream.toList();
+        }
+        final var hatWeitere = vereine.size() > groesse;
+        final var fussballvereine = hatWeitere ? vereine.subList(0, groesse) : vereine;
+        if (fussballvereine.isEmpty()) {
+            return new Delta(fussballvereine, false, nach);
+        }
+
+        if (mitMannschaften) {
+            repo.findMitMannschaften(fussballvereine.stream().map(Fussballverein::getId).toList());
+        }
+        final var letzter = fussballvereine.get(fussballvereine.size() - 1);
+        return new Delta(
+            fussballvereine,
+            hatWeitere,
+            new DeltaCursor(letzter.getAktualisiert(), letzter.getId())
+        );
+    }
+
+    /**
+     * Name und Emailadresse zu mehreren Trainern ermitteln, z.B. für einen DataLoader bei GraphQL. Bis zu
+     * <code>app.trainer.reactive-concurrency</code> Trainer werden mit {@link #findTrainerReactive(Collection)}
+     * nicht-blockierend gelesen, größere Mengen gebündelt mit einer einzigen Anfrage je Block beim Microservice
+     * "Trainer".
+     *
+     * @param trainerIds Die IDs der Trainer.
+     * @return Mono mit einer Map, die zu jeder Trainer-ID den Trainer enthält.
+     */
+    public Mono<Map<UUID, Trainer>> findTrainer(final Collection<UUID> trainerIds) {
+        log.trace("findTrainer: trainerIds={}", trainerIds);
+        if (trainerIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        if (trainerIds.size() <= trainerProps.reactiveConcurrency()) {
+            return findTrainerReactive(trainerIds);
+        }
+        return Mono.fromCallable(() -> trainerClient.findByIds(trainerIds))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Name und Emailadresse zu mehreren Trainern nicht-blockierend ermitteln. Je Trainer wird höchstens 1 Request
+     * abgesetzt und es sind höchstens <code>app.trainer.reactive-concurrency</code> Requests gleichzeitig unterwegs.
+     * Die Trainer werden über die REST-Schnittstelle gelesen und deshalb mit ETag gecacht.
+     *
+     * @param trainerIds Die IDs der Trainer.
+     * @return Mono mit einer Map, die zu jeder Trainer-ID den Trainer enthält.
+     */
+    public Mono<Map<UUID, Trainer>> findTrainerReactive(final Collection<UUID> trainerIds) {
+        log.trace("findTrainerReactive: trainerIds={}", trainerIds);
+        return Flux.fromIterable(Set.copyOf(trainerIds))
+            .flatMap(
+                trainerId -> trainerClient.findByIdReactive(trainerId)
+                    .map(trainer -> Map.entry(trainerId, trainer)),
+                trainerProps.reactiveConcurrency()
+            )
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Fussballvereine mit den Suchkriterien von GraphQL suchen, ohne die Mannschaften zu laden. Die Mannschaften
+     * werden bei Bedarf gebündelt mit {@link #findMannschaften(Collection)} ermittelt.
+     *
+     * @param suchkriterien Suchkriterien, z.B. <code>name</code>, <code>plz</code> oder <code>email</code>
+     * @return Die gefundenen Fussballvereine
+     * @throws NotFoundException Falls keine Fussballvereine gefunden wurden.
+     */
+    public @NonNull Collection<Fussballverein> findOhneMannschaften(
+        @NonNull final Map<String, List<String>> suchkriterien
+    ) {
+        log.debug("findOhneMannschaften: suchkriterien={}", suchkriterien);
+        final Collection<Fussballverein> vereine;
+        final var namen = suchkriterien.get("name");
+        final var plz = suchkriterien.get("plz");
+        final var emails = suchkriterien.get("email");
+        if (suchkriterien.isEmpty()) {
+            vereine = repo.findAllOhneMannschaften();
+        } else if (suchkriterien.size() == 1 && namen != null && namen.size() == 1) {
+            vereine = repo.findByNameOhneMannschaften(namen.get(0));
+        } else if (suchkriterien.size() == 1 && plz != null && plz.size() == 1) {
+            vereine = repo.findByPlzOhneMannschaften(plz.get(0));
+        } else if (suchkriterien.size() == 1 && emails != null && emails.size() == 1) {
+            vereine = repo.findByEmailOhneMannschaften(emails.get(0)).map(List::of).orElse(List.of());
+        } else {
+            final var predicate = predicateBuilder
+                .build(suchkriterien)
+                .orElseThrow(() -> new NotFoundException(suchkriterien));
+            // findAll(Predicate, Sort) verwendet im Gegensatz zu findAll(Predicate) keinen EntityGraph
+            final var gefunden = new ArrayList<Fussballverein>();
+            repo.findAll(predicate, Sort.unsorted()).forEach(gefunden::add);
+            vereine = gefunden;
+        }
+
+        if (vereine.isEmpty()) {
+            throw new NotFoundException(suchkriterien);
+        }
+        return vereine;
+    }
+
+    /**
+     * Die Mannschaften zu mehreren Fussballvereinen mit einer einzigen DB-Abfrage ermitteln.
+     *
+     * @param vereinIds Die IDs der Fussballvereine
+     * @return Map mit den Mannschaften je Fussballverein-ID
+     */
+    public Map<UUID, List<Mannschaft>> findMannschaften(final Collection<UUID> vereinIds) {
+        log.debug("findMannschaften: {} Vereine", vereinIds.size());
+        return repo.findMannschaftenByVereinIds(vereinIds)
+            .stream()
+            .collect(Collectors.groupingBy(mannschaft -> mannschaft.getFussballverein().getId()));
+    }
+
     /**
      * Sucht Fussballvereine mit angegebenen Parametern.
      *
@@ -85,7 +310,7 @@ public class FussballvereinReadService {
         @NonNull final Map<String, List<String>> suchkriterien
     ) {
         if (suchkriterien.isEmpty()) {
-            return findAll();
+            return findAll(false);
         }
 
         if (suchkriterien.size() == 1) {
@@ -131,20 +356,24 @@ public class FussballvereinReadService {
      * Fussballvereine zur Trainer-ID suchen.
      *
      * @param trainerId Die Id des gegebenen Trainers.
+     * @param mitTrainer true, falls Name und Emailadresse des Trainers ermittelt werden sollen
      * @return Die gefundenen Fussballvereine.
      * @throws NotFoundException Falls keine Fussballvereine gefunden wurden.
      */
-    public Collection<Fussballverein> findByTrainerId(final UUID trainerId) {
+    public Collection<Fussballverein> findByTrainerId(final UUID trainerId, final boolean mitTrainer) {
         log.debug("findByTrainerId: trainerId={}", trainerId);
 
         final var fussballvereine = repo.findByTrainerId(trainerId);
         if (fussballvereine.isEmpty()) {
             throw new NotFoundException();
         }
+        if (!mitTrainer) {
+            return fussballvereine;
+        }
 
-        final var trainer = findTrainerById(trainerId);
-        final var name = trainer == null ? null : trainer.name();
-        final var email = findEmailById(trainerId);
+        final var trainer = trainerClient.findById(trainerId);
+        final var name = trainer.name();
+        final var email = trainer.email();
         log.trace("findByTrainerId: name={}, email={}", name, email);
         fussballvereine.forEach(fussballverein -> {
             fussballverein.setTrainerName(name);
@@ -155,72 +384,98 @@ public class FussballvereinReadService {
         return fussballvereine;
     }
 
-    @SuppressWarnings("ReturnCount")
-    private Trainer findTrainerById(final UUID trainerId) {
-
-        final ResponseEntity<Trainer> response;
-        try {
-            response = trainerRepository.getTrainer(trainerId.toString());
-        } catch (final WebClientResponseException.NotFound ex) {
-            // Statuscode 404
-            log.error("findTrainerById: WebClientResponseException.NotFound");
-            return new Trainer("N/A", "not.found@acme.com");
-        } catch (final WebClientException ex) {
-            // sonstiger Statuscode 4xx oder 5xx
-            // WebClientRequestException oder WebClientResponseException (z.B. ServiceUnavailable)
-            log.error("findTrainerById: {}", ex.getClass().getSimpleName());
-            return new Trainer("Exception", "exception@acme.com");
+    /**
+     * Alle Fussballvereine mit ihren Mannschaften exportieren, ohne sie gleichzeitig im Heap zu halten. Die
+     * Fussballvereine werden über einen Cursor gelesen, die Mannschaften je Block mit einer IN-Abfrage. Nach jedem
+     * Block wird der Persistence Context geleert. Der 2nd-Level-Cache wird dabei nicht befüllt, damit der Export nicht
+     * die häufig gelesenen Fussballvereine und Mannschaften verdrängt.
+     *
+     * @param consumer Wird für jeden Fussballverein mit seinen Mannschaften aufgerufen
+     * @return Die Anzahl der exportierten Fussballvereine
+     */
+    public long export(final BiConsumer<Fussballverein, List<Mannschaft>> consumer) {
+        log.debug("export");
+        // gilt fuer die gesamte Transaktion, d.h. auch fuer die Mannschaften der einzelnen Bloecke
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        var anzahl = 0L;
+        final var block = new ArrayList<Fussballverein>(EXPORT_BLOCK);
+        try (var fussballvereine = repo.streamAll()) {
+            final var iterator = fussballvereine.iterator();
+            while (iterator.hasNext()) {
+                block.add(iterator.next());
+                if (block.size() == EXPORT_BLOCK) {
+                    anzahl += exportBlock(block, consumer);
+                }
+            }
         }
+        anzahl += exportBlock(block, consumer);
+        log.debug("export: {} Fussballvereine", anzahl);
+        return anzahl;
+    }
 
-        final var statusCode = response.getStatusCode();
-        log.debug("findTrainerById: statusCode={}", statusCode);
-        if (statusCode == NOT_MODIFIED) {
-            return new Trainer("Not-Modified", "not.modified@acme.com");
+    private int exportBlock(
+        final List<Fussballverein> block,
+        final BiConsumer<Fussballverein, List<Mannschaft>> consumer
+    ) {
+        if (block.isEmpty()) {
+            return 0;
         }
+        final var mannschaftenMap = findMannschaften(block.stream().map(Fussballverein::getId).toList());
+        block.forEach(verein -> consumer.accept(verein, mannschaftenMap.getOrDefault(verein.getId(), List.of())));
+        final var anzahl = block.size();
+        block.clear();
+        entityManager.clear();
+        return anzahl;
+    }
 
-        final var trainer = response.getBody();
-        log.debug("findTrainerById: {}", trainer);
-        return trainer;
+    private void setTrainer(final Collection<Fussballverein> fussballvereine) {
+        // jede Trainer-ID nur 1x abfragen, auch wenn ein Trainer mehrere Vereine trainiert
+        final var trainerIds = fussballvereine.stream()
+            .map(Fussballverein::getTrainerId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        final var trainerMap = trainerClient.findByIds(trainerIds);
+        log.trace("setTrainer: {} Vereine, {} Trainer", fussballvereine.size(), trainerMap.size());
+
+        fussballvereine.forEach(fussballverein -> {
+            final var trainer = trainerMap.get(fussballverein.getTrainerId());
+            if (trainer != null) {
+                fussballverein.setTrainerName(trainer.name());
+                fussballverein.setTrainerEmail(trainer.email());
+            }
+        });
+    }
+
+    /**
+     * Die veröffentlichten Änderungen nach einer Position ermitteln, z.B. für einen Änderungs-Feed.
+     *
+     * @param since Position der zuletzt gelesenen Änderung, 0 für den Anfang.
+     * @param size Maximale Anzahl an Änderungen, höchstens {@link #MAX_SEITENGROESSE}.
+     * @return Die Änderungen aufsteigend nach ihrer Position.
+     */
+    public List<Aenderung> findAenderungen(final long since, final int size) {
+        final var groesse = Math.max(1, Math.min(size, MAX_SEITENGROESSE));
+        return aenderungRepo.findSeit(since, PageRequest.ofSize(groesse));
     }
 
     /**
      * Abfrage, welche Namen es zu einem Präfix gibt.
      *
      * @param prefix Name-Präfix.
+     * @param limit Maximale Anzahl an Namen.
      * @return Die passenden Name.
      * @throws NotFoundException Falls keine Namen gefunden wurden.
      */
-    public @NonNull Collection<String> findNamenByPrefix(final String prefix) {
-        final var namen = repo.findNamenByPrefix(prefix);
+    // ohne eigene Transaktion, damit der Index der Vereinsnamen keine Connection aus dem Pool belegt
+    @Transactional(propagation = SUPPORTS)
+    public @NonNull Collection<String> findNamenByPrefix(final String prefix, final int limit) {
+        // ohne DB-Zugriff, sobald der Index der Vereinsnamen beim Start geladen wurde
+        final var namen = namenIndex.isGeladen()
+            ? namenIndex.find(prefix, limit)
+            : repo.findNamenByPrefix(prefix).stream().limit(limit).toList();
         if (namen.isEmpty()) {
             throw new NotFoundException();
         }
         return namen;
     }
-
-    private String findEmailById(final UUID trainerId) {
-        final var query = """
-            query {
-                trainer(id: "%s") {
-                    email
-                }
-            }
-            """.formatted(trainerId);
-
-        final String email;
-        try {
-            email = graphQlClient
-                .mutate()
-                .header(AUTHORIZATION)
-                .build()
-                .document(query)
-                .retrieve("trainer")
-                .toEntity(TrainerEmail.class)
-                .map(TrainerEmail::email)
-                .block();
-        } catch (final FieldAccessException | GraphQlTransportException ex) {
-            return "N/A";
-        }
-        return email;
-    }
 }
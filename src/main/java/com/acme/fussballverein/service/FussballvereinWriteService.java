@@ -16,28 +16,62 @@
  */
 package com.acme.fussballverein.service;
 
+import com.acme.fussballverein.entity.Aenderung;
 import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.repository.AenderungRepository;
 import com.acme.fussballverein.repository.FussballvereinRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.acme.fussballverein.entity.AenderungTyp.ERZEUGT;
+import static com.acme.fussballverein.entity.AenderungTyp.GEAENDERT;
+import static com.acme.fussballverein.entity.AenderungTyp.GELOESCHT;
+import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
 
 /**
  * Anwendungslogik für Fussballvereine auch mit Bean Validation.
  */
 @Service
 @Transactional(readOnly = true)
+@Timed(value = "fussballverein.service", histogram = true)
 @RequiredArgsConstructor
 @Slf4j
 public class FussballvereinWriteService {
+    /**
+     * Maximale Anzahl an Fussballvereinen bei {@link #createMany(List)}. Die Emailadressen werden mit einer einzigen
+     * IN-Liste geprüft, deren Bind-Parameter bei PostgreSQL auf 32767 begrenzt sind, und alle Fussballvereine werden
+     * in einer Transaktion angelegt.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Maximale Anzahl an Versuchen beim Zusammenführen paralleler Änderungen.
+     */
+    private static final int MAX_VERSUCHE = 3;
+
     private final FussballvereinRepository repo;
+    // Aenderungsprotokoll in derselben Transaktion wie die Aenderung selbst ("Transactional Outbox")
+    private final AenderungRepository aenderungRepo;
     // https://docs.spring.io/spring-framework/docs/current/reference/html/core.html#validation-beanvalidation
     private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
 
     /**
@@ -61,7 +95,60 @@ public class FussballvereinWriteService {
             throw new EmailExistsException(fussballverein.getEmail());
         }
 
-        return repo.save(fussballverein);
+        final var fussballvereinDb = repo.save(fussballverein);
+        aenderungRepo.save(Aenderung.of(ERZEUGT, fussballvereinDb.getId()));
+        eventPublisher.publishEvent(new VereinsnameEvent(fussballvereinDb.getId(), null, fussballvereinDb.getName()));
+        return fussballvereinDb;
+    }
+
+    /**
+     * Mehrere neue Fussballvereine in einer Transaktion anlegen. Alle Fussballvereine werden zuerst validiert,
+     * danach werden die Emailadressen mit einer einzigen Abfrage geprüft. Die gültigen Fussballvereine werden mit
+     * JDBC-Batching gespeichert, ungültige werden nicht angelegt, ohne die übrigen zu verhindern.
+     *
+     * @param fussballvereine Die neu anzulegenden Fussballvereine
+     * @return Ein Ergebnis je Fussballverein in derselben Reihenfolge
+     * @throws BatchTooLargeException Falls es mehr als {@link #MAX_BATCH_SIZE} Fussballvereine sind.
+     */
+    @Transactional
+    public List<AnlageErgebnis> createMany(final List<Fussballverein> fussballvereine) {
+        log.debug("createMany: {} Fussballvereine", fussballvereine.size());
+        if (fussballvereine.size() > MAX_BATCH_SIZE) {
+            throw new BatchTooLargeException(fussballvereine.size(), MAX_BATCH_SIZE);
+        }
+        final var violationsList = fussballvereine.stream()
+            .map(fussballverein -> validator.validate(fussballverein))
+            .toList();
+
+        final var emails = new ArrayList<String>(fussballvereine.size());
+        for (var i = 0; i < fussballvereine.size(); i++) {
+            if (violationsList.get(i).isEmpty()) {
+                emails.add(fussballvereine.get(i).getEmail());
+            }
+        }
+        final Set<String> vorhandeneEmails = emails.isEmpty() ? Set.of() : new HashSet<>(repo.findEmailsIn(emails));
+
+        final var neueEmails = new HashSet<String>(emails.size());
+        final var neueVereine = new ArrayList<Fussballverein>(emails.size());
+        final var ergebnisse = new ArrayList<AnlageErgebnis>(fussballvereine.size());
+        for (var i = 0; i < fussballvereine.size(); i++) {
+            final var fussballverein = fussballvereine.get(i);
+            final var violations = violationsList.get(i);
+            final var emailExists = violations.isEmpty() &&
+                (vorhandeneEmails.contains(fussballverein.getEmail()) || !neueEmails.add(fussballverein.getEmail()));
+            final var ergebnis = new AnlageErgebnis(fussballverein, violations, emailExists);
+            if (ergebnis.isAngelegt()) {
+                neueVereine.add(fussballverein);
+            }
+            ergebnisse.add(ergebnis);
+        }
+
+        repo.saveAll(neueVereine);
+        aenderungRepo.saveAll(neueVereine.stream().map(verein -> Aenderung.of(ERZEUGT, verein.getId())).toList());
+        neueVereine.forEach(verein ->
+            eventPublisher.publishEvent(new VereinsnameEvent(verein.getId(), null, verein.getName())));
+        log.debug("createMany: {} Fussballvereine angelegt", neueVereine.size());
+        return ergebnisse;
     }
 
     /**
@@ -83,39 +170,157 @@ public class FussballvereinWriteService {
             throw new ConstraintViolationsException(violations);
         }
 
-        final var vereinDbOptional = repo.findById(id);
-        if (vereinDbOptional.isEmpty()) {
-            throw new NotFoundException(id);
-        }
-
-        var fussballvereinDb = vereinDbOptional.get();
-        if (version != fussballvereinDb.getVersion()) {
+        // Vorbedingungen nur mit ID, Version und Email pruefen, ohne den Fussballverein mit Mannschaften zu laden
+        final var versionInfo = repo.findVersionInfoById(id).orElseThrow(() -> new NotFoundException(id));
+        if (version != versionInfo.version()) {
             throw new VersionOutdatedException(version);
         }
 
         final var email = fussballverein.getEmail();
         // Ist die neue E-Mail bei einem *ANDEREN* Fussballvereine vorhanden?
-        if (!Objects.equals(email, fussballvereinDb.getEmail()) && repo.existsByEmail(email)) {
+        if (!Objects.equals(email, versionInfo.email()) && repo.existsByEmail(email)) {
             log.debug("update: email {} existiert", email);
             throw new EmailExistsException(email);
         }
 
+        // ohne Mannschaften laden, ggf. aus dem 2nd-Level-Cache
+        var fussballvereinDb = repo.getReferenceById(id);
+        // zwischenzeitlich durch eine andere Transaktion geaendert?
+        if (version != fussballvereinDb.getVersion()) {
+            throw new VersionOutdatedException(version);
+        }
+        final var alterName = fussballvereinDb.getName();
+        final var felder = fussballvereinDb.unterschiede(fussballverein);
         fussballvereinDb.set(fussballverein);
         fussballvereinDb = repo.save(fussballvereinDb);
+        // ohne geaenderte Attribute erhoeht Hibernate die Versionsnummer nicht
+        if (!felder.isEmpty()) {
+            aenderungRepo.save(Aenderung.of(GEAENDERT, id, version + 1, felder));
+        }
+        if (!Objects.equals(alterName, fussballvereinDb.getName())) {
+            eventPublisher.publishEvent(new VereinsnameEvent(id, alterName, fussballvereinDb.getName()));
+        }
         return fussballvereinDb;
     }
 
     /**
-     * Einen Fussballvereine löschen.
+     * Einen vorhandenen Fussballverein im Merge-Modus aktualisieren: nur die gesetzten Werte werden auf die aktuelle
+     * Version übertragen. Ist die Version des Clients veraltet, werden die zu ändernden Attribute mit den seitdem
+     * geänderten Attributen aus dem Änderungsprotokoll verglichen: nur ohne Überschneidung wird die Änderung
+     * zusammengeführt, sonst würde eine parallele Änderung überschrieben. Scheitert das Speichern an einer parallelen
+     * Änderung, wird die Änderung in einer neuen Transaktion wiederholt.
+     *
+     * @param fussballverein Das Objekt mit den geänderten Daten, wobei null "unverändert" bedeutet
+     * @param id ID des zu aktualisierenden Fussballvereins
+     * @param version Die Version, auf der die Änderung des Clients basiert
+     * @return Der aktualisierte Fussballverein und ob ein Konflikt zusammengeführt wurde
+     * @throws ConstraintViolationsException Falls nach dem Zusammenführen mindestens ein Constraint verletzt ist.
+     * @throws NotFoundException Kein Fussballverein zur ID vorhanden.
+     * @throws VersionOutdatedException Seit der Version wurde mindestens eines der zu ändernden Attribute geändert.
+     * @throws EmailExistsException Es gibt bereits einen Fussballverein mit der Emailadresse.
+     * @throws OptimisticLockingFailureException Auch der letzte Versuch scheiterte an einer parallelen Änderung.
+     */
+    @Transactional(propagation = NOT_SUPPORTED)
+    public MergeErgebnis updateMerge(final Fussballverein fussballverein, final UUID id, final int version) {
+        for (var versuch = 1; ; versuch++) {
+            try {
+                final var ergebnis = transactionTemplate.execute(status -> merge(fussballverein, id, version));
+                return versuch == 1 ? ergebnis : new MergeErgebnis(ergebnis.fussballverein(), true);
+            } catch (final OptimisticLockingFailureException ex) {
+                if (versuch >= MAX_VERSUCHE) {
+                    throw ex;
+                }
+                log.debug("updateMerge: id={}, Versuch {} gescheitert", id, versuch);
+            }
+        }
+    }
+
+    private MergeErgebnis merge(final Fussballverein fussballverein, final UUID id, final int version) {
+        final var fussballvereinDb = repo.findById(id).orElseThrow(() -> new NotFoundException(id));
+        final var aktuelleVersion = fussballvereinDb.getVersion();
+        final var felder = fussballvereinDb.unterschiedeNichtNull(fussballverein);
+        final var konflikt = aktuelleVersion != version;
+        if (konflikt) {
+            pruefeUeberschneidung(id, version, aktuelleVersion, felder);
+        }
+        final var email = fussballverein.getEmail();
+        if (email != null && !Objects.equals(email, fussballvereinDb.getEmail()) && repo.existsByEmail(email)) {
+            throw new EmailExistsException(email);
+        }
+        if (felder.isEmpty()) {
+            return new MergeErgebnis(fussballvereinDb, konflikt);
+        }
+
+        final var alterName = fussballvereinDb.getName();
+        fussballvereinDb.setNichtNull(fussballverein);
+        final var violations = validator.validate(fussballvereinDb);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationsException(violations);
+        }
+
+        // flush, damit eine parallele Aenderung innerhalb dieses Versuchs erkannt wird
+        final var result = repo.saveAndFlush(fussballvereinDb);
+        aenderungRepo.save(Aenderung.of(GEAENDERT, id, aktuelleVersion + 1, felder));
+        if (!Objects.equals(alterName, result.getName())) {
+            eventPublisher.publishEvent(new VereinsnameEvent(id, alterName, result.getName()));
+        }
+        return new MergeErgebnis(result, konflikt);
+    }
+
+    // seit der Version des Clients geaenderte Attribute duerfen nicht ueberschrieben werden
+    private void pruefeUeberschneidung(
+        final UUID id,
+        final int version,
+        final int aktuelleVersion,
+        final Set<String> felder
+    ) {
+        if (version > aktuelleVersion) {
+            throw new VersionOutdatedException(version);
+        }
+        final var aenderungen = aenderungRepo.findSeitVersion(id, version);
+        // ohne lueckenloses Protokoll, z.B. vor V1.5, laesst sich eine Ueberschneidung nicht ausschliessen
+        final var protokollierteVersionen = aenderungen.stream()
+            .map(Aenderung::getVersion)
+            .distinct()
+            .count();
+        if (protokollierteVersionen != aktuelleVersion - version) {
+            log.debug("pruefeUeberschneidung: id={}, Protokoll ab Version {} unvollstaendig", id, version);
+            throw new VersionOutdatedException(version);
+        }
+        final var parallelGeaendert = aenderungen.stream()
+            .flatMap(aenderung -> aenderung.felderAlsSet().stream())
+            .filter(felder::contains)
+            .collect(Collectors.toSet());
+        if (!parallelGeaendert.isEmpty()) {
+            log.debug("pruefeUeberschneidung: id={}, parallel geaendert: {}", id, parallelGeaendert);
+            throw new VersionOutdatedException(version);
+        }
+    }
+
+    /**
+     * Einen Fussballvereine löschen. Der Fussballverein wird mit <code>getReferenceById()</code> geladen, d.h. in der
+     * Regel aus dem 2nd-Level-Cache, und mit seinen Mannschaften per Kaskade gelöscht. Dadurch entfernt Hibernate
+     * nur die Einträge dieses Fussballvereins, seiner Mannschaften und seiner Collection aus dem 2nd-Level-Cache.
+     * <p>
+     * JPQL-Bulk-Deletes würden zwar das Laden einsparen, aber Hibernate invalidiert dabei die kompletten
+     * Cache-Regionen von Fussballverein und Mannschaft, so dass danach alle übrigen Fussballvereine erneut aus der DB
+     * gelesen werden. Die DELETE-Anweisungen je Mannschaft werden stattdessen per JDBC-Batching gebündelt.
      *
      * @param id Die ID des zu löschenden Fussballvereine.
      */
     @Transactional
     public void deleteById(final UUID id) {
-        final var vereinOptional = repo.findById(id);
-        if (vereinOptional.isEmpty()) {
+        final var fussballverein = repo.getReferenceById(id);
+        final String name;
+        try {
+            // initialisiert den Proxy, ggf. aus dem 2nd-Level-Cache
+            name = fussballverein.getName();
+        } catch (final EntityNotFoundException ex) {
             return;
         }
-        repo.delete(vereinOptional.get());
+        repo.delete(fussballverein);
+        aenderungRepo.save(Aenderung.of(GELOESCHT, id));
+        log.debug("deleteById: id={}", id);
+        eventPublisher.publishEvent(new VereinsnameEvent(id, name, null));
     }
 }
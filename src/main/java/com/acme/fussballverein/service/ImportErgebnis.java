@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import java.util.List;
+
+/**
+ * Ergebnis eines CSV-Imports von Fussballvereinen.
+ *
+ * @param importiert Anzahl der importierten Fussballvereine
+ * @param abgelehnt Anzahl der abgelehnten Zeilen
+ * @param abgelehnteZeilen Die ersten abgelehnten Zeilen mit ihren Fehlermeldungen
+ */
+public record ImportErgebnis(long importiert, long abgelehnt, List<Zeile> abgelehnteZeilen) {
+    /**
+     * Eine abgelehnte Zeile der CSV-Datei.
+     *
+     * @param nummer Die Zeilennummer, beginnend mit 1 für die Kopfzeile
+     * @param fehler Die Fehlermeldungen
+     */
+    public record Zeile(long nummer, List<String> fehler) {
+    }
+}
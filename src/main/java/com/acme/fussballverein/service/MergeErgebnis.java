@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.entity.Fussballverein;
+
+/**
+ * Ergebnis einer Änderung im Merge-Modus.
+ *
+ * @param fussballverein Der aktualisierte Fussballverein
+ * @param konflikt true, falls der Fussballverein seit der angegebenen Version geändert wurde oder ein Versuch wegen
+ *                 einer parallelen Änderung wiederholt werden musste
+ */
+public record MergeErgebnis(Fussballverein fussballverein, boolean konflikt) {
+}
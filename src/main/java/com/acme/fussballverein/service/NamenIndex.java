@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.repository.FussballvereinRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import static java.util.Locale.GERMAN;
+
+/**
+ * Index der Vereinsnamen im Hauptspeicher für die Autovervollständigung. Die Schlüssel sind nach dem
+ * kleingeschriebenen Namen sortiert, so dass alle Namen zu einem Präfix ohne DB-Zugriff als zusammenhängender
+ * Bereich gefunden werden. Der Index wird beim Start geladen und danach über {@link VereinsnameEvent} aktualisiert.
+ * <p>
+ * Events, die während des Ladens eintreffen, werden aufgezeichnet und vor dem Austausch des Index erneut angewendet.
+ * Da zu jedem Namen die IDs der Vereine gespeichert sind, ändert ein Event, dessen Transaktion schon im geladenen
+ * Stand enthalten ist, nichts mehr.
+ * <p>
+ * Der Index ist nur bei einer einzigen Instanz aktuell, weil Änderungen anderer Instanzen oder direkt in der DB
+ * kein Event auslösen. Mit <code>app.namen-index.enabled=false</code> wird stattdessen immer die DB abgefragt.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class NamenIndex {
+    // trennt den kleingeschriebenen Schluessel vom Originalnamen
+    private static final char TRENNER = '\0';
+
+    private final FussballvereinRepository repo;
+    private final NamenIndexProperties props;
+
+    // Schluessel: lower(name) + TRENNER + name, Wert: IDs der Vereine mit genau diesem Namen (unveraenderlich)
+    private volatile ConcurrentSkipListMap<String, Set<UUID>> namen = new ConcurrentSkipListMap<>();
+    private volatile boolean geladen;
+
+    // serialisiert die Events mit dem Aufzeichnen und dem Austausch des Index beim Laden
+    private final ReentrantLock lock = new ReentrantLock();
+    // nur waehrend des Ladens ungleich null
+    private List<VereinsnameEvent> aufgezeichnet;
+
+    /**
+     * Alle Vereinsnamen beim Start einmalig aus der DB laden.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void laden() {
+        if (!props.enabled()) {
+            log.info("laden: Index der Vereinsnamen ist deaktiviert");
+            return;
+        }
+
+        // Events ab jetzt aufzeichnen, d.h. vor dem Snapshot der folgenden Abfrage
+        lock.lock();
+        try {
+            aufgezeichnet = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        final var neu = new ConcurrentSkipListMap<String, Set<UUID>>();
+        repo.findAllNamen().forEach(info -> hinzufuegen(neu, info.name(), info.id()));
+
+        lock.lock();
+        try {
+            aufgezeichnet.forEach(event -> anwenden(neu, event));
+            log.debug("laden: {} Events waehrend des Ladens", aufgezeichnet.size());
+            aufgezeichnet = null;
+            namen = neu;
+            geladen = true;
+        } finally {
+            lock.unlock();
+        }
+        log.info("laden: {} verschiedene Vereinsnamen", neu.size());
+    }
+
+    /**
+     * Den Index nach dem Commit einer Transaktion mit geändertem Vereinsnamen aktualisieren.
+     *
+     * @param event Die ID sowie der bisherige und der neue Vereinsname
+     */
+    @TransactionalEventListener
+    void onVereinsname(final VereinsnameEvent event) {
+        log.trace("onVereinsname: {}", event);
+        lock.lock();
+        try {
+            if (aufgezeichnet != null) {
+                aufgezeichnet.add(event);
+            }
+            anwenden(namen, event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Abfrage, ob der Index geladen ist und damit anstelle der DB verwendet werden kann.
+     *
+     * @return true, falls der Index geladen ist
+     */
+    boolean isGeladen() {
+        return geladen;
+    }
+
+    /**
+     * Die Vereinsnamen zu einem Präfix ermitteln, unabhängig von Groß- und Kleinschreibung.
+     *
+     * @param prefix Der Präfix
+     * @param limit Die maximale Anzahl an Namen
+     * @return Die passenden Vereinsnamen, sortiert nach dem kleingeschriebenen Namen
+     */
+    List<String> find(final String prefix, final int limit) {
+        final var von = prefix.toLowerCase(GERMAN);
+        return namen.subMap(von, true, von + Character.MAX_VALUE, false)
+            .keySet()
+            .stream()
+            .limit(limit)
+            .map(key -> key.substring(key.indexOf(TRENNER) + 1))
+            .toList();
+    }
+
+    private static void anwenden(final ConcurrentSkipListMap<String, Set<UUID>> index, final VereinsnameEvent event) {
+        if (event.alterName() != null) {
+            entfernen(index, event.alterName(), event.id());
+        }
+        if (event.neuerName() != null) {
+            hinzufuegen(index, event.neuerName(), event.id());
+        }
+    }
+
+    private static void hinzufuegen(
+        final ConcurrentSkipListMap<String, Set<UUID>> index,
+        final String name,
+        final UUID id
+    ) {
+        index.merge(toKey(name), Set.of(id), (ids, neueId) -> {
+            if (ids.contains(id)) {
+                return ids;
+            }
+            final var erweitert = new HashSet<>(ids);
+            erweitert.add(id);
+            return Set.copyOf(erweitert);
+        });
+    }
+
+    private static void entfernen(
+        final ConcurrentSkipListMap<String, Set<UUID>> index,
+        final String name,
+        final UUID id
+    ) {
+        index.computeIfPresent(toKey(name), (key, ids) -> {
+            final var rest = new HashSet<>(ids);
+            rest.remove(id);
+            return rest.isEmpty() ? null : Set.copyOf(rest);
+        });
+    }
+
+    private static String toKey(final String name) {
+        return name.toLowerCase(GERMAN) + TRENNER + name;
+    }
+}
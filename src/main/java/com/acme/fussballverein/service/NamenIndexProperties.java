@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Konfiguration für den Index der Vereinsnamen im Hauptspeicher mit dem Präfix <code>app.namen-index</code>.
+ *
+ * @param enabled false, falls die Autovervollständigung immer die DB abfragen soll, z.B. bei mehreren Instanzen.
+ */
+@ConfigurationProperties(prefix = "app.namen-index")
+public record NamenIndexProperties(@DefaultValue("true") boolean enabled) {
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.entity.Fussballverein;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Eine Seite von Fussballvereinen bei der Keyset-Pagination, d.h. sortiert nach der ID.
+ *
+ * @param fussballvereine Die Fussballvereine dieser Seite
+ * @param hatWeitere true, falls es nach dieser Seite weitere Fussballvereine gibt
+ */
+public record Seite(List<Fussballverein> fussballvereine, boolean hatWeitere) {
+    /**
+     * Der Cursor für die nächste Seite, d.h. die ID des letzten Fussballvereins dieser Seite.
+     *
+     * @return Die ID des letzten Fussballvereins oder null, falls die Seite leer ist
+     */
+    public UUID cursor() {
+        return fussballvereine.isEmpty() ? null : fussballvereine.get(fussballvereine.size() - 1).getId();
+    }
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.metrics.Phasen;
+import com.acme.fussballverein.repository.Trainer;
+import com.acme.fussballverein.repository.TrainerProperties;
+import com.acme.fussballverein.repository.TrainerReactiveRepository;
+import com.acme.fussballverein.repository.TrainerRestRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.graphql.client.ClientGraphQlResponse;
+import org.springframework.graphql.client.GraphQlTransportException;
+import org.springframework.graphql.client.HttpGraphQlClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * Zugriff auf den Microservice "Trainer", um Name und Emailadresse eines Trainers mit jeweils nur einem einzigen
+ * Request zu ermitteln. Gefundene Trainer werden in einem lokalen Cache mit begrenzter Größe gehalten und nach
+ * Ablauf der konfigurierten Zeitspanne mit "If-None-Match" revalidiert. Mehrere Blöcke von Trainern werden
+ * parallel durch "Virtual Threads" abgefragt, wobei die Anzahl gleichzeitiger Requests begrenzt ist. Alle Requests
+ * laufen durch einen Circuit Breaker und ein Bulkhead, so dass bei einem Ausfall von "trainer" sofort der Platzhalter
+ * "Exception" verwendet wird, statt auf Timeouts zu warten. Jeder Request an "trainer" wird durch den Timer
+ * <code>trainer.requests</code> mit den Tags <code>operation</code> und <code>outcome</code> gemessen.
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+@Component
+@Slf4j
+class TrainerClient {
+    /**
+     * Maximale Anzahl an Trainern, die mit einem einzigen GraphQL-Request abgefragt werden.
+     */
+    private static final int BATCH_SIZE = 50;
+
+    private static final String TRAINER = "trainer";
+
+    // Tags fuer den Timer trainer.requests
+    private static final String REST = "rest";
+    private static final String GRAPHQL = "graphql";
+    private static final String OK = "ok";
+    private static final String NOT_FOUND = "not_found";
+    private static final String NOT_MODIFIED = "not_modified";
+    private static final String ERROR = "error";
+    private static final String TIMEOUT = "timeout";
+
+    private final TrainerRestRepository trainerRepository;
+    private final TrainerReactiveRepository trainerReactiveRepository;
+    private final HttpGraphQlClient graphQlClient;
+    private final AsyncTaskExecutor taskExecutor;
+    private final Semaphore semaphore;
+    private final Duration deadline;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final LoadingCache<UUID, CacheEintrag> cache;
+    private final Counter revalidierungNotModified;
+    private final Counter revalidierungModified;
+    private final MeterRegistry meterRegistry;
+
+    @SuppressWarnings("ParameterNumber")
+    TrainerClient(
+        final TrainerRestRepository trainerRepository,
+        final TrainerReactiveRepository trainerReactiveRepository,
+        final HttpGraphQlClient graphQlClient,
+        final TrainerProperties props,
+        final MeterRegistry meterRegistry,
+        final AsyncTaskExecutor taskExecutor,
+        final CircuitBreakerRegistry circuitBreakerRegistry,
+        final BulkheadRegistry bulkheadRegistry
+    ) {
+        this.trainerRepository = trainerRepository;
+        this.trainerReactiveRepository = trainerReactiveRepository;
+        this.graphQlClient = graphQlClient;
+        this.taskExecutor = taskExecutor;
+        this.meterRegistry = meterRegistry;
+        // fair: wartende Requests werden in der Reihenfolge ihres Eintreffens bedient
+        semaphore = new Semaphore(props.maxConcurrency(), true);
+        deadline = props.deadline();
+        // Konfiguration in application.yml unter resilience4j.circuitbreaker bzw. resilience4j.bulkhead
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker(TRAINER);
+        bulkhead = bulkheadRegistry.bulkhead(TRAINER);
+
+        // refreshAfterWrite: nach Ablauf der TTL wird beim naechsten Zugriff asynchron revalidiert
+        // expireAfterWrite: spaetestens dann wird ein Eintrag verworfen, z.B. falls "trainer" nicht erreichbar ist
+        cache = Caffeine.newBuilder()
+            .maximumSize(props.cacheMaxSize())
+            .refreshAfterWrite(props.cacheTtl())
+            .expireAfterWrite(props.cacheMaxAge())
+            .executor(taskExecutor)
+            .recordStats()
+            .build(new TrainerCacheLoader());
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size, ...
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, TRAINER);
+        revalidierungNotModified = Counter.builder("cache.revalidations")
+            .description("Revalidierungen mit If-None-Match")
+            .tag("cache", TRAINER)
+            .tag("result", "not_modified")
+            .register(meterRegistry);
+        revalidierungModified = Counter.builder("cache.revalidations")
+            .description("Revalidierungen mit If-None-Match")
+            .tag("cache", TRAINER)
+            .tag("result", "modified")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Name und Emailadresse eines Trainers aus dem Cache oder über die REST-Schnittstelle ermitteln. Der
+     * Response-Body enthält bereits beide Werte, so dass kein zusätzlicher GraphQL-Request erforderlich ist.
+     *
+     * @param trainerId ID des Trainers
+     * @return Der gefundene Trainer oder ein Platzhalter, falls der Trainer nicht gefunden wurde oder ein Fehler
+     *      aufgetreten ist.
+     */
+    Trainer findById(final UUID trainerId) {
+        final var start = System.nanoTime();
+        final CacheEintrag eintrag;
+        try {
+            eintrag = cache.get(trainerId);
+        } catch (final WebClientException | CallNotPermittedException | BulkheadFullException ex) {
+            // Statuscode 4xx (ausser 404) oder 5xx
+            // WebClientRequestException oder WebClientResponseException (z.B. ServiceUnavailable)
+            // Circuit Breaker ist offen oder das Bulkhead ist voll
+            log.error("findById: {}", ex.getClass().getSimpleName());
+            return exception();
+        } finally {
+            Phasen.erfassen(Phasen.TRAINER, System.nanoTime() - start);
+        }
+
+        if (eintrag == null) {
+            log.debug("findById: trainerId={} nicht gefunden", trainerId);
+            return notFound();
+        }
+        log.debug("findById: {}", eintrag.trainer());
+        return eintrag.trainer();
+    }
+
+    /**
+     * Name und Emailadresse eines Trainers aus dem Cache oder nicht-blockierend über die REST-Schnittstelle
+     * ermitteln.
+     *
+     * @param trainerId ID des Trainers
+     * @return Mono mit dem gefundenen Trainer oder einem Platzhalter, falls der Trainer nicht gefunden wurde, ein
+     *      Fehler aufgetreten ist oder die Deadline überschritten wurde.
+     */
+    Mono<Trainer> findByIdReactive(final UUID trainerId) {
+        final var eintrag = cache.getIfPresent(trainerId);
+        if (eintrag != null) {
+            return Mono.just(eintrag.trainer());
+        }
+
+        final Mono<ResponseEntity<Trainer>> request = Mono.defer(() -> {
+            final var start = System.nanoTime();
+            return trainerReactiveRepository.getTrainer(trainerId.toString())
+                .doOnSuccess(response -> messen(start, REST, response == null ? NOT_FOUND : OK))
+                .doOnError(ex -> messen(start, REST, ex instanceof WebClientResponseException.NotFound
+                    ? NOT_FOUND
+                    : ERROR))
+                // durch timeout() nach Ablauf der Deadline
+                .doOnCancel(() -> messen(start, REST, TIMEOUT));
+        });
+        return request
+            // innerhalb von Circuit Breaker und Bulkhead, damit ein haengender Request als Fehler zaehlt
+            // und das Permit des Bulkheads spaetestens nach Ablauf der Deadline zurueckgegeben wird
+            .timeout(deadline)
+            .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+            .transformDeferred(BulkheadOperator.of(bulkhead))
+            .mapNotNull(response -> {
+                final var neuerEintrag = toCacheEintrag(response);
+                if (neuerEintrag == null) {
+                    return null;
+                }
+                cache.put(trainerId, neuerEintrag);
+                return neuerEintrag.trainer();
+            })
+            .switchIfEmpty(Mono.fromSupplier(TrainerClient::notFound))
+            .onErrorResume(WebClientResponseException.NotFound.class, ex -> Mono.just(notFound()))
+            .onErrorResume(TimeoutException.class, ex -> Mono.just(timeout()))
+            .onErrorResume(
+                ex -> ex instanceof WebClientException || ex instanceof CallNotPermittedException ||
+                    ex instanceof BulkheadFullException,
+                ex -> {
+                    log.error("findByIdReactive: {}", ex.getClass().getSimpleName());
+                    return Mono.just(exception());
+                }
+            );
+    }
+
+    /**
+     * Name und Emailadresse zu mehreren Trainern ermitteln. Trainer, die nicht im Cache sind, werden in Blöcken
+     * zu je {@value #BATCH_SIZE} mit jeweils einem einzigen GraphQL-Request abgefragt, indem für jede ID ein Alias
+     * im Query-Dokument verwendet wird. Die Blöcke werden parallel abgefragt; Trainer, deren Block nicht innerhalb
+     * der konfigurierten Deadline geliefert wurde, erhalten "N/A" als Name und Emailadresse.
+     *
+     * @param trainerIds Die IDs der Trainer ohne Duplikate.
+     * @return Map mit den Trainern zu den IDs.
+     */
+    Map<UUID, Trainer> findByIds(final Collection<UUID> trainerIds) {
+        final var start = System.nanoTime();
+        try {
+            return findByIds(trainerIds, start + deadline.toNanos());
+        } finally {
+            Phasen.erfassen(Phasen.TRAINER, System.nanoTime() - start);
+        }
+    }
+
+    private Map<UUID, Trainer> findByIds(final Collection<UUID> trainerIds, final long ende) {
+        final Map<UUID, Trainer> trainerMap = new HashMap<>(trainerIds.size());
+        cache.getAllPresent(trainerIds).forEach((id, eintrag) -> trainerMap.put(id, eintrag.trainer()));
+
+        final List<UUID> ids = trainerIds.stream()
+            .filter(id -> !trainerMap.containsKey(id))
+            .toList();
+        log.trace("findByIds: {} Trainer im Cache, {} Trainer nachladen", trainerMap.size(), ids.size());
+        final List<List<UUID>> bloecke = new ArrayList<>(ids.size() / BATCH_SIZE + 1);
+        for (int von = 0; von < ids.size(); von += BATCH_SIZE) {
+            bloecke.add(ids.subList(von, Math.min(von + BATCH_SIZE, ids.size())));
+        }
+
+        final List<CompletableFuture<Map<UUID, Trainer>>> futures = bloecke.stream()
+            .map(block -> taskExecutor.submitCompletable(() -> findBlockBegrenzt(block, ende)))
+            .toList();
+        for (int i = 0; i < bloecke.size(); i++) {
+            trainerMap.putAll(awaitBlock(futures.get(i), bloecke.get(i), ende));
+        }
+        return trainerMap;
+    }
+
+    private Map<UUID, Trainer> awaitBlock(
+        final CompletableFuture<Map<UUID, Trainer>> future,
+        final List<UUID> block,
+        final long ende
+    ) {
+        try {
+            return future.get(Math.max(ende - System.nanoTime(), 0L), NANOSECONDS);
+        } catch (final TimeoutException ex) {
+            log.warn("awaitBlock: Deadline {} ueberschritten fuer {} Trainer", deadline, block.size());
+            // der Request selbst ist durch die Deadline in findBlock() begrenzt und gibt dann seine Permits frei
+            future.cancel(true);
+            return platzhalter(block, timeout());
+        } catch (final ExecutionException ex) {
+            log.error("awaitBlock: {}", ex.getCause().getClass().getSimpleName());
+            return platzhalter(block, exception());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return platzhalter(block, timeout());
+        }
+    }
+
+    private Map<UUID, Trainer> findBlockBegrenzt(final List<UUID> ids, final long ende) throws InterruptedException {
+        // nicht laenger als bis zur Deadline auf ein Permit warten
+        if (!semaphore.tryAcquire(ende - System.nanoTime(), NANOSECONDS)) {
+            return platzhalter(ids, timeout());
+        }
+        try {
+            return findBlock(ids, ende);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private Map<UUID, Trainer> findBlock(final List<UUID> ids, final long ende) {
+        final var query = new StringBuilder(64 + ids.size() * 80).append("query {\n");
+        for (int i = 0; i < ids.size(); i++) {
+            query.append("    t")
+                .append(i)
+                .append(": trainer(id: \"")
+                .append(ids.get(i))
+                .append("\") { name email }\n");
+        }
+        query.append('}');
+
+        final Map<UUID, Trainer> trainerMap = new HashMap<>(ids.size());
+        final var start = System.nanoTime();
+        final ClientGraphQlResponse response;
+        try {
+            response = guarded(() -> graphQlClient
+                .mutate()
+                .header(AUTHORIZATION)
+                .build()
+                .document(query.toString())
+                .execute()
+                // bei Ablauf der Deadline wird der Request abgebrochen, statt den Virtual Thread und das Permit
+                // des Semaphors bei einem haengenden "trainer" dauerhaft zu blockieren
+                .timeout(Duration.ofNanos(Math.max(ende - System.nanoTime(), 0L)))
+                .onErrorMap(TimeoutException.class, DeadlineException::new)
+                .block());
+        } catch (final DeadlineException ex) {
+            log.warn("findBlock: Deadline {} ueberschritten fuer {} Trainer", deadline, ids.size());
+            messen(start, GRAPHQL, TIMEOUT);
+            return platzhalter(ids, timeout());
+        } catch (final GraphQlTransportException | WebClientException | CallNotPermittedException |
+                       BulkheadFullException ex) {
+            log.error("findBlock: {}", ex.getClass().getSimpleName());
+            messen(start, GRAPHQL, ERROR);
+            return platzhalter(ids, exception());
+        }
+        messen(start, GRAPHQL, response == null ? NOT_FOUND : OK);
+
+        for (int i = 0; i < ids.size(); i++) {
+            final var id = ids.get(i);
+            final var field = response == null ? null : response.field("t" + i);
+            if (field == null || field.getValue() == null) {
+                trainerMap.put(id, notFound());
+                continue;
+            }
+            final var trainer = field.toEntity(Trainer.class);
+            trainerMap.put(id, trainer);
+            // ohne ETag: die erste Revalidierung erfolgt ohne "If-None-Match"
+            cache.put(id, new CacheEintrag(trainer, null));
+        }
+        log.debug("findBlock: {} Trainer", trainerMap.size());
+        return trainerMap;
+    }
+
+    /**
+     * Einen Request an "trainer" durch das Bulkhead und den Circuit Breaker ausführen.
+     *
+     * @param request Der eigentliche Request
+     * @return Das Resultat des Requests
+     * @throws CallNotPermittedException Falls der Circuit Breaker offen ist
+     * @throws BulkheadFullException Falls bereits zu viele Requests an "trainer" unterwegs sind
+     */
+    private <T> T guarded(final Supplier<T> request) {
+        return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, request)).get();
+    }
+
+    /**
+     * Die Dauer eines Requests an "trainer" im Timer <code>trainer.requests</code> erfassen.
+     *
+     * @param start Beginn des Requests mit System.nanoTime()
+     * @param operation <code>rest</code> oder <code>graphql</code>
+     * @param outcome Ergebnis, z.B. <code>ok</code>, <code>not_found</code> oder <code>error</code>
+     */
+    private void messen(final long start, final String operation, final String outcome) {
+        Timer.builder("trainer.requests")
+            .description("Requests an den Microservice trainer")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, NANOSECONDS);
+    }
+
+    private static CacheEintrag toCacheEintrag(final ResponseEntity<Trainer> response) {
+        final var trainer = response.getBody();
+        return trainer == null ? null : new CacheEintrag(trainer, response.getHeaders().getETag());
+    }
+
+    private static Map<UUID, Trainer> platzhalter(final List<UUID> ids, final Trainer trainer) {
+        final Map<UUID, Trainer> trainerMap = new HashMap<>(ids.size());
+        ids.forEach(id -> trainerMap.put(id, trainer));
+        return trainerMap;
+    }
+
+    private static Trainer timeout() {
+        return new Trainer("N/A", "N/A");
+    }
+
+    private static Trainer notFound() {
+        return new Trainer("N/A", "not.found@acme.com");
+    }
+
+    private static Trainer exception() {
+        return new Trainer("Exception", "exception@acme.com");
+    }
+
+    /**
+     * Exception, falls ein Request an "trainer" nicht innerhalb der Deadline beantwortet wurde. Im Gegensatz zu
+     * {@link TimeoutException} ist sie unchecked und wird deshalb durch <code>block()</code> unverändert geworfen.
+     */
+    private static final class DeadlineException extends RuntimeException {
+        DeadlineException(final Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Eintrag im Cache: Trainer mit dem ETag, das der Microservice "Trainer" geliefert hat.
+     *
+     * @param trainer Der Trainer
+     * @param etag Das ETag oder null, falls der Trainer per GraphQL ermittelt wurde
+     */
+    private record CacheEintrag(Trainer trainer, String etag) {
+    }
+
+    /**
+     * Laden eines Trainers bei einem Cache-Miss und Revalidierung nach Ablauf der TTL. Bei Statuscode 404 wird null
+     * zurückgeliefert, so dass nichts gecacht bzw. der bisherige Eintrag entfernt wird. Sonstige Fehler werden
+     * nicht gecacht.
+     */
+    private final class TrainerCacheLoader implements CacheLoader<UUID, CacheEintrag> {
+        @Override
+        public CacheEintrag load(final UUID id) {
+            final var start = System.nanoTime();
+            final ResponseEntity<Trainer> response;
+            try {
+                response = guarded(() -> trainerRepository.getTrainer(id.toString()));
+            } catch (final WebClientResponseException.NotFound ex) {
+                // Statuscode 404
+                log.error("load: WebClientResponseException.NotFound");
+                messen(start, REST, NOT_FOUND);
+                return null;
+            } catch (final RuntimeException ex) {
+                messen(start, REST, ERROR);
+                throw ex;
+            }
+            messen(start, REST, OK);
+            return toCacheEintrag(response);
+        }
+
+        @Override
+        public CacheEintrag reload(final UUID id, final CacheEintrag alterEintrag) {
+            if (alterEintrag.etag() == null) {
+                return load(id);
+            }
+
+            final var start = System.nanoTime();
+            final ResponseEntity<Trainer> response;
+            try {
+                response = guarded(() -> trainerRepository.getTrainerMitVersion(id.toString(), alterEintrag.etag()));
+            } catch (final WebClientResponseException.NotFound ex) {
+                log.debug("reload: trainerId={} nicht mehr vorhanden", id);
+                messen(start, REST, NOT_FOUND);
+                return null;
+            } catch (final RuntimeException ex) {
+                messen(start, REST, ERROR);
+                throw ex;
+            }
+
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                log.trace("reload: trainerId={} unveraendert", id);
+                messen(start, REST, NOT_MODIFIED);
+                revalidierungNotModified.increment();
+                return alterEintrag;
+            }
+            messen(start, REST, OK);
+            revalidierungModified.increment();
+            return toCacheEintrag(response);
+        }
+    }
+}
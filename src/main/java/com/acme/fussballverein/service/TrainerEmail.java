@@ -1,10 +0,0 @@
-package com.acme.fussballverein.service;
-
-/**
- * Entity-Klasse für den GraphQL-Client.
- *
- * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
- * @param email Emailadresse
- */
-record TrainerEmail(String email) {
-}
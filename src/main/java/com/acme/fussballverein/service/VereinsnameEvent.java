@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import java.util.UUID;
+
+/**
+ * Event beim Anlegen, Ändern oder Löschen eines Fussballvereins, damit abgeleitete Strukturen wie der Index der
+ * Vereinsnamen aktualisiert werden können.
+ *
+ * @param id Die ID des Fussballvereins
+ * @param alterName Der bisherige Vereinsname oder null beim Anlegen
+ * @param neuerName Der neue Vereinsname oder null beim Löschen
+ */
+record VereinsnameEvent(UUID id, String alterName, String neuerName) {
+}
@@ -0,0 +1,15 @@
+-- Trigram-Indexe fuer die Teilstring-Suche mit lower(spalte) LIKE '%teil%'
+-- Ein B-Tree-Index wie fussballverein_name_idx ist bei einem fuehrenden % nicht verwendbar
+-- https://www.postgresql.org/docs/current/pgtrgm.html#PGTRGM-INDEX
+
+-- pg_trgm ist eine "trusted" Extension und kann deshalb vom Eigentuemer der DB angelegt werden
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS fussballverein_name_trgm_idx
+    ON fussballverein USING gin (lower(name) gin_trgm_ops) TABLESPACE fussballvereinspace;
+CREATE INDEX IF NOT EXISTS fussballverein_email_trgm_idx
+    ON fussballverein USING gin (lower(email) gin_trgm_ops) TABLESPACE fussballvereinspace;
+CREATE INDEX IF NOT EXISTS fussballverein_plz_trgm_idx
+    ON fussballverein USING gin (lower(plz) gin_trgm_ops) TABLESPACE fussballvereinspace;
+CREATE INDEX IF NOT EXISTS fussballverein_telefonnummer_trgm_idx
+    ON fussballverein USING gin (lower(telefonnummer) gin_trgm_ops) TABLESPACE fussballvereinspace;
@@ -0,0 +1,18 @@
+-- Transactional Outbox: jede Aenderung an einem Fussballverein wird in derselben Transaktion protokolliert
+-- und anschliessend asynchron durch AenderungRelay veroeffentlicht
+-- position wird erst beim Veroeffentlichen vergeben und ist deshalb in Commit-Reihenfolge aufsteigend
+
+CREATE SEQUENCE IF NOT EXISTS aenderung_position_seq;
+
+CREATE TABLE IF NOT EXISTS aenderung (
+    id                uuid PRIMARY KEY USING INDEX TABLESPACE fussballvereinspace,
+    fussballverein_id uuid NOT NULL,
+    typ               varchar(9) NOT NULL CHECK (typ ~ 'ERZEUGT|GEAENDERT|GELOESCHT'),
+    erzeugt           timestamp NOT NULL,
+    position          bigint UNIQUE USING INDEX TABLESPACE fussballvereinspace,
+    veroeffentlicht   timestamp
+) TABLESPACE fussballvereinspace;
+
+-- Partieller Index: der Relay liest nur die noch nicht veroeffentlichten Zeilen
+CREATE INDEX IF NOT EXISTS aenderung_offen_idx
+    ON aenderung(erzeugt, id) TABLESPACE fussballvereinspace WHERE position IS NULL;
@@ -0,0 +1,5 @@
+-- Index fuer den Delta-Abgleich: Fussballvereine, die nach einem Cursor (aktualisiert, id) geaendert wurden,
+-- werden als Bereich des Index in der Sortierreihenfolge gelesen
+
+CREATE INDEX IF NOT EXISTS fussballverein_aktualisiert_idx
+    ON fussballverein(aktualisiert, id) TABLESPACE fussballvereinspace;
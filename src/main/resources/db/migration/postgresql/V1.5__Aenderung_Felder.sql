@@ -0,0 +1,10 @@
+-- Aenderungsprotokoll je Version: Zusammenfuehren paralleler Aenderungen im Merge-Modus (PUT mit "Prefer: merge")
+-- version: Versionsnummer des Fussballvereins nach der Aenderung
+-- felder:  kommagetrennte Namen der geaenderten Attribute, z.B. "name,plz"
+-- Zeilen ohne version bzw. felder, z.B. vor dieser Migration, fuehren beim Zusammenfuehren zu Statuscode 412
+
+ALTER TABLE aenderung ADD COLUMN IF NOT EXISTS version integer;
+ALTER TABLE aenderung ADD COLUMN IF NOT EXISTS felder varchar(64);
+
+CREATE INDEX IF NOT EXISTS aenderung_fussballverein_version_idx
+    ON aenderung(fussballverein_id, version) TABLESPACE fussballvereinspace;
@@ -0,0 +1,5 @@
+-- Aufbewahrung des Aenderungsprotokolls: AenderungRelay loescht veroeffentlichte Zeilen nach app.aenderung.aufbewahrung
+-- Partieller Index, damit das Loeschen nicht die gesamte Tabelle liest
+
+CREATE INDEX IF NOT EXISTS aenderung_veroeffentlicht_idx
+    ON aenderung(veroeffentlicht) TABLESPACE fussballvereinspace WHERE veroeffentlicht IS NOT NULL;
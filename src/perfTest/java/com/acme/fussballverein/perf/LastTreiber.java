@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.perf;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lastgenerator mit offenem Modell: die Requests werden unabhängig von den Antwortzeiten im festen Takt der
+ * angestrebten Rate gestartet, jeder in einem eigenen Virtual Thread. Die Latenz wird ab dem geplanten Startzeitpunkt
+ * gemessen, so dass ein Rückstau nicht verschwiegen wird ("Coordinated Omission").
+ */
+final class LastTreiber {
+    private static final int STATUS_CLIENT_ERROR = 400;
+    private static final int SIGNIFIKANTE_STELLEN = 3;
+    private static final long NANOS_PRO_SEKUNDE = 1_000_000_000L;
+    private static final long NANOS_PRO_MIKROSEKUNDE = 1_000L;
+
+    private final HttpClient client;
+    private final List<Szenario> szenarien;
+    private final int gesamtgewicht;
+    private final Map<String, Recorder> recorder = new LinkedHashMap<>();
+    private final Map<String, LongAdder> fehler = new LinkedHashMap<>();
+    // fester Seed, damit jeder Lauf dieselbe Folge von Requests erzeugt
+    private final SplittableRandom random = new SplittableRandom(42L);
+
+    LastTreiber(final HttpClient client, final List<Szenario> szenarien) {
+        this.client = client;
+        this.szenarien = szenarien;
+        gesamtgewicht = szenarien.stream().mapToInt(Szenario::gewicht).sum();
+        szenarien.forEach(szenario -> {
+            recorder.put(szenario.name(), new Recorder(SIGNIFIKANTE_STELLEN));
+            fehler.put(szenario.name(), new LongAdder());
+        });
+    }
+
+    /**
+     * Requests mit der angestrebten Rate für die angegebene Dauer starten und auf alle Antworten warten.
+     *
+     * @param rps Requests pro Sekunde
+     * @param dauer Dauer
+     */
+    void laufen(final int rps, final Duration dauer) {
+        final var intervall = NANOS_PRO_SEKUNDE / rps;
+        final var start = System.nanoTime();
+        final var ende = start + dauer.toNanos();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long nr = 0; ; nr++) {
+                final var geplant = start + nr * intervall;
+                if (geplant >= ende) {
+                    break;
+                }
+                final var warten = geplant - System.nanoTime();
+                if (warten > 0) {
+                    LockSupport.parkNanos(warten);
+                }
+                final var szenario = waehlen();
+                final var requestNr = nr;
+                executor.execute(() -> ausfuehren(szenario, requestNr, geplant));
+            }
+        }
+    }
+
+    /**
+     * Die bisherigen Messwerte verwerfen, z.B. nach der Aufwärmphase.
+     */
+    void zuruecksetzen() {
+        recorder.values().forEach(Recorder::reset);
+        fehler.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Die Messwerte je Szenario in Mikrosekunden seit dem letzten Aufruf bzw. seit dem Zurücksetzen.
+     *
+     * @return Histogramm je Szenario
+     */
+    Map<String, Histogram> histogramme() {
+        final var histogramme = new LinkedHashMap<String, Histogram>();
+        recorder.forEach((name, rec) -> histogramme.put(name, rec.getIntervalHistogram()));
+        return histogramme;
+    }
+
+    long getFehler(final String szenario) {
+        return fehler.get(szenario).sum();
+    }
+
+    private Szenario waehlen() {
+        var wert = random.nextInt(gesamtgewicht);
+        for (final var szenario : szenarien) {
+            wert -= szenario.gewicht();
+            if (wert < 0) {
+                return szenario;
+            }
+        }
+        return szenarien.get(szenarien.size() - 1);
+    }
+
+    private void ausfuehren(final Szenario szenario, final long nr, final long geplant) {
+        try {
+            final var response = client.send(szenario.request().apply(nr), BodyHandlers.discarding());
+            if (response.statusCode() >= STATUS_CLIENT_ERROR) {
+                fehler.get(szenario.name()).increment();
+            }
+        } catch (final IOException ex) {
+            fehler.get(szenario.name()).increment();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            recorder.get(szenario.name()).recordValue((System.nanoTime() - geplant) / NANOS_PRO_MIKROSEKUNDE);
+        }
+    }
+}
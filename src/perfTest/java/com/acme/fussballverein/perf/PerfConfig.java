@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.perf;
+
+import org.springframework.boot.convert.DurationStyle;
+import java.time.Duration;
+
+/**
+ * Konfiguration des Lasttests durch System Properties mit dem Präfix <code>perf.</code>, z.B.
+ * <code>.\gradlew perfTest -Dperf.rps=200 -Dperf.trainer.latenz=80ms -Dperf.trainer.fehlerquote=0.05</code>.
+ *
+ * @param rps Angestrebte Anzahl an Requests pro Sekunde.
+ * @param dauer Dauer der Messung.
+ * @param warmup Dauer der Aufwärmphase, deren Messwerte verworfen werden.
+ * @param trainerPort Port des eingebetteten Stubs für den Microservice "Trainer".
+ * @param latenz Feste Antwortzeit des Stubs.
+ * @param jitter Maximale zufällige Verzögerung des Stubs zusätzlich zur festen Antwortzeit.
+ * @param fehlerquote Anteil der Requests an den Stub, die mit Statuscode 500 beantwortet werden.
+ */
+record PerfConfig(
+    int rps,
+    Duration dauer,
+    Duration warmup,
+    int trainerPort,
+    Duration latenz,
+    Duration jitter,
+    double fehlerquote
+) {
+    /**
+     * Die Konfiguration aus den System Properties mit Defaultwerten einlesen.
+     *
+     * @return Die Konfiguration
+     */
+    static PerfConfig ausSystemProperties() {
+        return new PerfConfig(
+            Integer.parseInt(System.getProperty("perf.rps", "100")),
+            dauer("perf.dauer", "60s"),
+            dauer("perf.warmup", "15s"),
+            Integer.parseInt(System.getProperty("perf.trainer.port", "8089")),
+            dauer("perf.trainer.latenz", "50ms"),
+            dauer("perf.trainer.jitter", "20ms"),
+            Double.parseDouble(System.getProperty("perf.trainer.fehlerquote", "0"))
+        );
+    }
+
+    private static Duration dauer(final String property, final String defaultWert) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultWert));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.perf;
+
+import com.acme.fussballverein.Application;
+import com.acme.fussballverein.metrics.SqlBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Lasttest für den Microservice "Fussballverein": startet einen Stub für den Microservice "Trainer" und die
+ * Anwendung mit einer lokalen PostgreSQL-DB im selben Prozess und erzeugt eine Mischung aus REST- und
+ * GraphQL-Requests mit der konfigurierten Rate. Die Latenzen werden je Szenario mit HdrHistogram erfasst und
+ * als Perzentile ausgegeben sowie in <code>build/perfTest/*.hgrm</code> gespeichert. Vorher wird für
+ * <code>GET /rest</code> und die GraphQL-Query <code>fussballvereine</code> das SQL-Budget geprüft, damit
+ * N+1-Abfragen nicht erst als schlechte Latenz auffallen.
+ *
+ * @see PerfConfig
+ */
+public final class PerfTest {
+    private static final Path AUSGABE = Path.of("build", "perfTest");
+    private static final double MIKRO_PRO_MILLI = 1000.0;
+    private static final int ANZAHL_IDS = 100;
+    private static final int STATUS_CLIENT_ERROR = 400;
+    // 1 Abfrage fuer die Fussballvereine und 1 Abfrage fuer alle Mannschaften, dazu 1 Reserve
+    private static final int SQL_BUDGET = 3;
+
+    private PerfTest() {
+    }
+
+    /**
+     * Stub, Anwendung und Lastgenerator starten, die Ergebnisse ausgeben und alles wieder beenden.
+     *
+     * @param args Argumente für Spring Boot, z.B. <code>--spring.datasource.url=...</code>
+     * @throws Exception Fehler beim Starten oder beim Schreiben der Ergebnisse
+     */
+    public static void main(final String... args) throws Exception {
+        final var config = PerfConfig.ausSystemProperties();
+        System.out.printf("Lasttest: %s%n", config);
+        try (var stub = new TrainerStub(config)) {
+            stub.start();
+            final var context = SpringApplication.run(Application.class, args);
+            try (var client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build()) {
+                final var port = context.getEnvironment().getProperty("local.server.port");
+                final var baseUri = "http://localhost:" + port;
+                // vor allen anderen Requests, solange der 2nd-Level-Cache noch keine N+1-Abfragen verdeckt
+                sqlBudgetPruefen(client, baseUri);
+                final var treiber = new LastTreiber(client, szenarien(client, baseUri));
+
+                System.out.printf("Aufwaermphase: %s%n", config.warmup());
+                treiber.laufen(config.rps(), config.warmup());
+                treiber.zuruecksetzen();
+
+                System.out.printf("Messung: %d Requests/s fuer %s%n", config.rps(), config.dauer());
+                treiber.laufen(config.rps(), config.dauer());
+                ausgeben(treiber, treiber.histogramme(), config);
+                System.out.printf("Stub \"Trainer\": %d Requests, davon %d mit Statuscode 500%n",
+                    stub.getAnzahlRequests(), stub.getAnzahlFehler());
+            } finally {
+                SpringApplication.exit(context);
+            }
+        }
+    }
+
+    @SuppressWarnings("LambdaBodyLength")
+    private static List<Szenario> szenarien(final HttpClient client, final String baseUri)
+        throws IOException, InterruptedException {
+        final var mapper = new ObjectMapper();
+        final var response = client.send(
+            HttpRequest.newBuilder(URI.create(baseUri + "/rest?size=" + ANZAHL_IDS))
+                .header("Accept", "application/hal+json")
+                .build(),
+            BodyHandlers.ofString()
+        );
+        final var ids = new ArrayList<String>();
+        final var trainerIds = new ArrayList<String>();
+        for (final var verein : mapper.readTree(response.body()).path("_embedded").path("fussballvereine")) {
+            final var href = verein.path("_links").path("self").path("href").asText();
+            ids.add(href.substring(href.lastIndexOf('/') + 1));
+            if (verein.hasNonNull("trainerId")) {
+                trainerIds.add(verein.get("trainerId").asText());
+            }
+        }
+        if (ids.isEmpty() || trainerIds.isEmpty()) {
+            throw new IllegalStateException("Keine Testdaten in der DB, siehe V1.1__Insert.sql");
+        }
+        // eindeutige Emailadressen auch bei mehreren Laeufen gegen dieselbe DB
+        final var lauf = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+        return List.of(
+            new Szenario("GET /rest", 20, nr -> get(baseUri + "/rest?size=20")),
+            new Szenario("GET /rest/{id}", 30, nr -> get(baseUri + "/rest/" + element(ids, nr) + "?fields=trainer")),
+            new Szenario("GET /rest?trainerId", 10, nr -> get(baseUri + "/rest?trainerId=" + element(trainerIds, nr))),
+            new Szenario("GET /rest/name/{prefix}", 5, nr -> get(baseUri + "/rest/name/S")),
+            new Szenario("POST /rest", 10, nr -> post(baseUri + "/rest", "application/json", """
+                {
+                  "name": "Lasttest Verein",
+                  "email": "last%s-%d@acme.de",
+                  "gruendungsdatum": "2000-01-01",
+                  "plz": "76133",
+                  "telefonnummer": "0721 1234567",
+                  "trainerID": "%s",
+                  "mannschaften": [{"jugend": "A", "anzahlMitglieder": 18}]
+                }
+                """.formatted(lauf, nr, UUID.randomUUID()))),
+            new Szenario("GraphQL fussballverein", 15, nr -> graphql(baseUri, """
+                { fussballverein(id: "%s") { name email trainerName trainerEmail mannschaften { jugend } } }
+                """.formatted(element(ids, nr)))),
+            new Szenario("GraphQL fussballvereineSeite", 10, nr -> graphql(baseUri, """
+                { fussballvereineSeite(first: 20) { edges { node { name trainerName mannschaften { jugend } } } } }
+                """))
+        );
+    }
+
+    private static void sqlBudgetPruefen(final HttpClient client, final String baseUri) {
+        final var requests = Map.of(
+            "GET /rest", get(baseUri + "/rest?size=20"),
+            "GraphQL fussballvereine", graphql(baseUri, "{ fussballvereine { name mannschaften { jugend } } }")
+        );
+        requests.forEach((name, request) -> {
+            final var statements = SqlBudget.pruefen(name, SQL_BUDGET, senden(client, request));
+            System.out.printf("SQL-Budget %-26s %d von %d SQL-Anweisungen%n", name, statements, SQL_BUDGET);
+        });
+    }
+
+    private static HttpResponse<Void> senden(final HttpClient client, final HttpRequest request) {
+        final HttpResponse<Void> response;
+        try {
+            response = client.send(request, BodyHandlers.discarding());
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+        if (response.statusCode() >= STATUS_CLIENT_ERROR) {
+            throw new IllegalStateException(request.uri() + ": Statuscode " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static String element(final List<String> liste, final long nr) {
+        return liste.get((int) (nr % liste.size()));
+    }
+
+    private static HttpRequest get(final String uri) {
+        return HttpRequest.newBuilder(URI.create(uri))
+            .header("Accept", "application/hal+json")
+            .GET()
+            .build();
+    }
+
+    private static HttpRequest post(final String uri, final String contentType, final String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+            .header("Content-Type", contentType)
+            .POST(HttpRequest.BodyPublishers.ofString(body, UTF_8))
+            .build();
+    }
+
+    private static HttpRequest graphql(final String baseUri, final String query) {
+        final var body = new ObjectMapper().createObjectNode().put("query", query).toString();
+        return post(baseUri + "/graphql", "application/json", body);
+    }
+
+    private static void ausgeben(
+        final LastTreiber treiber,
+        final Map<String, Histogram> histogramme,
+        final PerfConfig config
+    ) throws IOException {
+        Files.createDirectories(AUSGABE);
+        System.out.printf("%n%-30s %8s %7s %9s %9s %9s %9s %9s%n",
+            "Szenario", "Anzahl", "Fehler", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        histogramme.forEach((name, histogramm) -> {
+            System.out.printf("%-30s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                name,
+                histogramm.getTotalCount(),
+                treiber.getFehler(name),
+                histogramm.getValueAtPercentile(50) / MIKRO_PRO_MILLI,
+                histogramm.getValueAtPercentile(90) / MIKRO_PRO_MILLI,
+                histogramm.getValueAtPercentile(99) / MIKRO_PRO_MILLI,
+                histogramm.getValueAtPercentile(99.9) / MIKRO_PRO_MILLI,
+                histogramm.getMaxValue() / MIKRO_PRO_MILLI);
+            final var datei = AUSGABE.resolve(name.replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (var out = new PrintStream(Files.newOutputStream(datei), true, UTF_8)) {
+                out.printf("# %s, %s%n", name, config);
+                histogramm.outputPercentileDistribution(out, MIKRO_PRO_MILLI);
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.perf;
+
+import java.net.http.HttpRequest;
+import java.util.function.LongFunction;
+
+/**
+ * Ein Request-Typ des Lasttests mit seinem Anteil an der Gesamtlast.
+ *
+ * @param name Name für die Auswertung, z.B. <code>GET /rest/{id}</code>.
+ * @param gewicht Relativer Anteil an allen Requests.
+ * @param request Erzeugt den Request zur laufenden Nummer, z.B. für eindeutige Emailadressen.
+ */
+record Szenario(String name, int gewicht, LongFunction<HttpRequest> request) {
+}
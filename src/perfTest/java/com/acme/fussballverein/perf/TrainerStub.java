@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Eingebetteter Stub für den Microservice "Trainer" mit einstellbarer Latenz und Fehlerquote. Der Stub beantwortet
+ * <code>GET /rest/{id}</code> einschließlich ETag und <code>If-None-Match</code> sowie die gebündelten
+ * GraphQL-Abfragen mit Aliasen <code>t0: trainer(id: "...") { name email }</code> aus <code>TrainerClient</code>.
+ */
+final class TrainerStub implements AutoCloseable {
+    private static final String ETAG = "\"0\"";
+    private static final Pattern TRAINER_PATTERN = Pattern.compile("(t\\d+): trainer\\(id: \"([^\"]+)\"\\)");
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_NOT_MODIFIED = 304;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+    private static final int STATUS_SERVER_ERROR = 500;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Duration latenz;
+    private final Duration jitter;
+    private final double fehlerquote;
+    private final LongAdder anzahlRequests = new LongAdder();
+    private final LongAdder anzahlFehler = new LongAdder();
+
+    /**
+     * Den Stub mit der Konfiguration des Lasttests erstellen, aber noch nicht starten.
+     *
+     * @param config Die Konfiguration mit Port, Latenz und Fehlerquote
+     * @throws IOException Falls der Port nicht geöffnet werden kann
+     */
+    TrainerStub(final PerfConfig config) throws IOException {
+        latenz = config.latenz();
+        jitter = config.jitter();
+        fehlerquote = config.fehlerquote();
+        server = HttpServer.create(new InetSocketAddress(config.trainerPort()), 0);
+        server.setExecutor(executor);
+        server.createContext("/rest/", this::rest);
+        server.createContext("/graphql", this::graphql);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    long getAnzahlRequests() {
+        return anzahlRequests.sum();
+    }
+
+    long getAnzahlFehler() {
+        return anzahlFehler.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void rest(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(STATUS_METHOD_NOT_ALLOWED, -1);
+                return;
+            }
+            if (!verzoegern(exchange)) {
+                return;
+            }
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.sendResponseHeaders(STATUS_NOT_MODIFIED, -1);
+                return;
+            }
+            final var path = exchange.getRequestURI().getPath();
+            final var id = path.substring(path.lastIndexOf('/') + 1);
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            senden(exchange, trainer(id));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void graphql(final HttpExchange exchange) throws IOException {
+        try {
+            if (!verzoegern(exchange)) {
+                return;
+            }
+            final var query = mapper.readTree(exchange.getRequestBody()).path("query").asText();
+            final var data = mapper.createObjectNode();
+            final var matcher = TRAINER_PATTERN.matcher(query);
+            while (matcher.find()) {
+                data.set(matcher.group(1), trainer(matcher.group(2)));
+            }
+            final var response = mapper.createObjectNode();
+            response.set("data", data);
+            senden(exchange, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Latenz und Fehler simulieren: false, falls bereits mit Statuscode 500 geantwortet wurde
+    private boolean verzoegern(final HttpExchange exchange) throws IOException {
+        anzahlRequests.increment();
+        final var random = ThreadLocalRandom.current();
+        final var jitterNanos = jitter.isZero() ? 0L : random.nextLong(jitter.toNanos());
+        try {
+            Thread.sleep(latenz.plusNanos(jitterNanos));
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (fehlerquote > 0 && random.nextDouble() < fehlerquote) {
+            anzahlFehler.increment();
+            exchange.sendResponseHeaders(STATUS_SERVER_ERROR, -1);
+            return false;
+        }
+        return true;
+    }
+
+    private ObjectNode trainer(final String id) {
+        final var trainer = mapper.createObjectNode();
+        trainer.put("name", "Trainer " + Integer.toHexString(id.hashCode()));
+        trainer.put("email", "trainer-" + id + "@acme.de");
+        return trainer;
+    }
+
+    private void senden(final HttpExchange exchange, final ObjectNode body) throws IOException {
+        final var bytes = mapper.writeValueAsString(body).getBytes(UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(STATUS_OK, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
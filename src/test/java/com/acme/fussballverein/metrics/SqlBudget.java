@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.metrics;
+
+import java.net.http.HttpResponse;
+import java.util.regex.Pattern;
+
+import static com.acme.fussballverein.metrics.ServerTimingFilter.SERVER_TIMING;
+
+/**
+ * Prüfen, ob ein Request, z.B. <code>GET /rest</code> oder die GraphQL-Query <code>fussballvereine</code>, mit
+ * einer vorgegebenen Anzahl an SQL-Anweisungen auskommt. Damit fallen N+1-Abfragen, z.B. beim Nachladen der
+ * Mannschaften, in Tests und im Lasttest auf, bevor sie ausgeliefert werden.
+ * <p>
+ * Gezählt wird je Request durch {@link StatementZaehler}, d.h. die Anzahl stammt aus dem Eintrag
+ * <code>sql;desc="n SQL"</code> im Response-Header <code>Server-Timing</code>. Parallele Requests oder eine
+ * Hintergrundaktivität wie <code>AenderungRelay</code> verfälschen das Ergebnis deshalb nicht. Der 2nd-Level-Cache
+ * verdeckt N+1-Abfragen und muss beim Prüfen deaktiviert sein.
+ * </p>
+ *
+ * @author <a href="mailto:Juergen.Zimmermann@h-ka.de">Jürgen Zimmermann</a>
+ */
+public final class SqlBudget {
+    private static final Pattern SQL = Pattern.compile("sql;desc=\"(\\d+) SQL\"");
+
+    private SqlBudget() {
+    }
+
+    /**
+     * Die Anzahl der SQL-Anweisungen eines Requests mit dem Budget vergleichen.
+     *
+     * @param name Name des Requests für die Fehlermeldung, z.B. <code>GET /rest</code>
+     * @param maxStatements Maximale Anzahl an SQL-Anweisungen
+     * @param response Die Response des Requests
+     * @return Die Anzahl der SQL-Anweisungen
+     * @throws AssertionError Falls das Budget überschritten wurde oder der Request keine SQL-Anweisung erfasst hat
+     */
+    public static long pruefen(final String name, final long maxStatements, final HttpResponse<?> response) {
+        final var serverTiming = response.headers()
+            .firstValue(SERVER_TIMING)
+            .orElseThrow(() -> new AssertionError(name + ": kein Header " + SERVER_TIMING));
+        final var matcher = SQL.matcher(serverTiming);
+        if (!matcher.find()) {
+            // auch ein Zugriff aus einem anderen Thread waere nicht gezaehlt und wuerde das Budget aushebeln
+            throw new AssertionError(name + ": keine SQL-Anweisung im Header " + SERVER_TIMING + ": " + serverTiming);
+        }
+        final var statements = Long.parseLong(matcher.group(1));
+        if (statements > maxStatements) {
+            throw new AssertionError(String.format(
+                "%s: %d SQL-Anweisungen statt hoechstens %d", name, statements, maxStatements
+            ));
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * SQL-Budget für <code>GET /rest</code> und die GraphQL-Query <code>fussballvereine</code> mit der Anwendung und
+ * PostgreSQL in einem Container. Ohne 2nd-Level-Cache, damit N+1-Abfragen beim Nachladen der Mannschaften nicht
+ * verdeckt werden.
+ */
+@Tag("integration")
+@SpringBootTest(
+    webEnvironment = RANDOM_PORT,
+    properties = {
+        "server.ssl.enabled=false",
+        "server.http2.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"
+    }
+)
+@DisplayName("SQL-Budget je Request")
+class SqlBudgetTest {
+    // 1 Abfrage fuer die Fussballvereine und 1 Abfrage fuer alle Mannschaften, dazu 1 Reserve
+    private static final int SQL_BUDGET = 3;
+    private static final int STATUS_OK = 200;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @LocalServerPort
+    private int port;
+
+    @AfterAll
+    void close() {
+        client.close();
+    }
+
+    @Test
+    @Tag("rest")
+    @Tag("rest-get")
+    @DisplayName("GET /rest mit hoechstens 3 SQL-Anweisungen")
+    void getRest() throws IOException, InterruptedException {
+        // given
+        final var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/rest?size=20"))
+            .header("Accept", "application/hal+json")
+            .GET()
+            .build();
+
+        // when
+        final var response = client.send(request, BodyHandlers.ofString());
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(STATUS_OK);
+        assertThat(SqlBudget.pruefen("GET /rest", SQL_BUDGET, response)).isPositive();
+    }
+
+    @Test
+    @Tag("graphql")
+    @Tag("query")
+    @DisplayName("GraphQL-Query fussballvereine mit Mannschaften mit hoechstens 3 SQL-Anweisungen")
+    void graphqlFussballvereine() throws IOException, InterruptedException {
+        // given
+        final var mapper = new ObjectMapper();
+        final var body = mapper.createObjectNode()
+            .put("query", "{ fussballvereine { name mannschaften { jugend } } }")
+            .toString();
+        final var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/graphql"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+
+        // when
+        final var response = client.send(request, BodyHandlers.ofString());
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(STATUS_OK);
+        final var data = mapper.readTree(response.body());
+        assertThat(data.path("errors").isMissingNode()).isTrue();
+        assertThat(data.path("data").path("fussballvereine")).isNotEmpty();
+        assertThat(SqlBudget.pruefen("GraphQL fussballvereine", SQL_BUDGET, response)).isPositive();
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class PostgresConfig {
+        // Tablespace, Schema und search_path wie bei extras/db/postgres, siehe auch TrigramIndexTest
+        @Bean
+        @ServiceConnection
+        @SuppressWarnings("resource")
+        PostgreSQLContainer<?> postgres() {
+            return new PostgreSQLContainer<>(DockerImageName.parse("postgres:15.3-bookworm"))
+                .withDatabaseName("fussballverein")
+                .withUsername("fussballverein")
+                .withPassword("p")
+                .withInitScript("db/init-postgres.sql");
+        }
+    }
+}
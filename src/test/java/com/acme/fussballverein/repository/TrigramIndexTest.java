@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ausführungspläne der Präfix- und Teilstring-Suche nach Namen: statt eines "Seq Scan" muss PostgreSQL den
+ * Trigram-Index aus <code>V1.2__Trigram.sql</code> verwenden. Automatisierte Fassung von
+ * <code>extras/db/postgres/sql/explain-trigram.sql</code>.
+ */
+@Tag("integration")
+@Tag("query")
+@Testcontainers
+@DisplayName("Ausfuehrungsplaene der Suche nach Namen mit dem Trigram-Index")
+class TrigramIndexTest {
+    private static final String NAME_TRGM_IDX = "fussballverein_name_trgm_idx";
+    private static final String BITMAP_INDEX_SCAN = "Bitmap Index Scan";
+    private static final String SEQ_SCAN = "Seq Scan";
+
+    // wie bei explain-trigram.sql eindeutige Namen, aber nur 100.000 Fussballvereine
+    private static final String TESTDATEN = """
+        INSERT INTO fussballverein
+               (id, version, name, email, gruendungsdatum, plz, telefonnummer, erzeugt, aktualisiert)
+        SELECT gen_random_uuid(),
+               0,
+               'Verein ' || md5(n::text),
+               'verein' || n || '@test.de',
+               date '1900-01-01' + (n % 40000),
+               lpad((n % 100000)::text, 5, '0'),
+               '0721 ' || lpad(n::text, 7, '0'),
+               now(),
+               now()
+        FROM   generate_series(1, 100000) AS n
+        """;
+
+    // Hibernate generiert fuer concat() bei PostgreSQL den Operator ||, vgl. FussballvereinRepository
+    private static final String PRAEFIX_SUCHE = "SELECT * FROM fussballverein WHERE lower(name) LIKE lower(?) || '%'";
+    private static final String TEILSTRING_SUCHE =
+        "SELECT * FROM fussballverein WHERE lower(name) LIKE '%' || lower(?) || '%'";
+
+    @Container
+    @SuppressWarnings("resource")
+    private static final PostgreSQLContainer<?> POSTGRES =
+        new PostgreSQLContainer<>(DockerImageName.parse("postgres:15.3-bookworm"))
+            .withDatabaseName("fussballverein")
+            .withUsername("fussballverein")
+            .withPassword("p")
+            .withInitScript("db/init-postgres.sql");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Connection connection;
+
+    @BeforeAll
+    void beforeAll() throws SQLException {
+        Flyway.configure()
+            .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+            .locations("classpath:db/migration/postgresql")
+            .schemas("fussballverein")
+            .createSchemas(false)
+            .load()
+            .migrate();
+
+        connection = DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        try (var stmt = connection.createStatement()) {
+            stmt.executeUpdate(TESTDATEN);
+            stmt.execute("ANALYZE fussballverein");
+        }
+    }
+
+    @AfterAll
+    void afterAll() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    @DisplayName("Suche mit Praefix")
+    void praefix() throws SQLException, IOException {
+        // when
+        final var knoten = plan(PRAEFIX_SUCHE, "Verein abc");
+
+        // then
+        assertTrigramIndex(knoten);
+    }
+
+    @Test
+    @DisplayName("Suche mit Teilstring")
+    void teilstring() throws SQLException, IOException {
+        // when
+        final var knoten = plan(TEILSTRING_SUCHE, "ABCDE");
+
+        // then
+        assertTrigramIndex(knoten);
+    }
+
+    private static void assertTrigramIndex(final List<JsonNode> knoten) {
+        assertThat(knoten).anySatisfy(k -> {
+            assertThat(k.path("Node Type").asText()).isEqualTo(BITMAP_INDEX_SCAN);
+            assertThat(k.path("Index Name").asText()).isEqualTo(NAME_TRGM_IDX);
+        });
+        assertThat(knoten).noneMatch(k -> SEQ_SCAN.equals(k.path("Node Type").asText()));
+    }
+
+    // alle Knoten des Ausfuehrungsplans von EXPLAIN (FORMAT JSON)
+    private List<JsonNode> plan(final String sql, final String suchwert) throws SQLException, IOException {
+        try (var stmt = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + sql)) {
+            stmt.setString(1, suchwert);
+            try (var resultSet = stmt.executeQuery()) {
+                assertThat(resultSet.next()).isTrue();
+                final var knoten = new ArrayList<JsonNode>();
+                sammeln(mapper.readTree(resultSet.getString(1)).path(0).path("Plan"), knoten);
+                return knoten;
+            }
+        }
+    }
+
+    private static void sammeln(final JsonNode plan, final List<JsonNode> knoten) {
+        knoten.add(plan);
+        plan.path("Plans").forEach(unterplan -> sammeln(unterplan, knoten));
+    }
+}
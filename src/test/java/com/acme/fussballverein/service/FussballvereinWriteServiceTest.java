@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.entity.Aenderung;
+import com.acme.fussballverein.entity.Fussballverein;
+import com.acme.fussballverein.repository.AenderungRepository;
+import com.acme.fussballverein.repository.FussballvereinRepository;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.acme.fussballverein.service.FussballvereinWriteService.MAX_BATCH_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Anwendungslogik zum Schreiben mit gemockten Repositories.
+ */
+@Tag("unit")
+@Tag("service-write")
+@DisplayName("Anwendungslogik zum Schreiben")
+class FussballvereinWriteServiceTest {
+    private static final UUID ID = UUID.randomUUID();
+
+    private FussballvereinRepository repo;
+    private AenderungRepository aenderungRepo;
+    private Validator validator;
+    private TransactionTemplate transactionTemplate;
+    private FussballvereinWriteService service;
+
+    // Zeile in der "DB" und Aenderungsprotokoll fuer die Tests im Merge-Modus
+    private final AtomicReference<Fussballverein> zeile = new AtomicReference<>();
+    private final List<Aenderung> protokoll = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void beforeEach() {
+        repo = mock(FussballvereinRepository.class);
+        aenderungRepo = mock(AenderungRepository.class);
+        validator = mock(Validator.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        service = new FussballvereinWriteService(
+            repo,
+            aenderungRepo,
+            validator,
+            mock(ApplicationEventPublisher.class),
+            transactionTemplate
+        );
+    }
+
+    @Test
+    @DisplayName("Zu viele Fussballvereine auf einmal anlegen")
+    void createManyZuViele() {
+        // given
+        final var fussballvereine = Collections.nCopies(MAX_BATCH_SIZE + 1, Fussballverein.builder().build());
+
+        // when / then
+        assertThatThrownBy(() -> service.createMany(fussballvereine))
+            .isInstanceOf(BatchTooLargeException.class)
+            .hasFieldOrPropertyWithValue("anzahl", MAX_BATCH_SIZE + 1)
+            .hasFieldOrPropertyWithValue("max", MAX_BATCH_SIZE);
+        verifyNoInteractions(validator, repo);
+    }
+
+    @Test
+    @DisplayName("Zwei parallele Schreiber aendern denselben Namen: der zweite erhaelt 412")
+    void mergeParallelGleichesAttribut() {
+        // given
+        dbSimulieren();
+        final var ersterSchreiber = Fussballverein.builder().name("Alpha").build();
+        final var zweiterSchreiber = Fussballverein.builder().name("Beta").build();
+        // der erste Schreiber speichert, nachdem der zweite Schreiber Version 0 gelesen hat
+        alsParallelerSchreiber(ersterSchreiber);
+
+        // when / then
+        assertThatThrownBy(() -> service.updateMerge(zweiterSchreiber, ID, 0))
+            .isInstanceOf(VersionOutdatedException.class);
+        assertThat(zeile.get().getName()).isEqualTo("Alpha");
+        assertThat(zeile.get().getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Zwei parallele Schreiber aendern verschiedene Attribute: die Aenderungen werden zusammengefuehrt")
+    void mergeParallelVerschiedeneAttribute() {
+        // given
+        dbSimulieren();
+        final var ersterSchreiber = Fussballverein.builder().name("Alpha").build();
+        final var zweiterSchreiber = Fussballverein.builder().plz("12345").build();
+        alsParallelerSchreiber(ersterSchreiber);
+
+        // when
+        final var ergebnis = service.updateMerge(zweiterSchreiber, ID, 0);
+
+        // then
+        assertThat(ergebnis.konflikt()).isTrue();
+        assertThat(zeile.get().getName()).isEqualTo("Alpha");
+        assertThat(zeile.get().getPlz()).isEqualTo("12345");
+        assertThat(zeile.get().getVersion()).isEqualTo(2);
+        assertThat(protokoll).extracting(Aenderung::getFelder).containsExactly("name", "plz");
+    }
+
+    // Repositories und Transaktionen mit einer einzigen Zeile im Hauptspeicher, inkl. optimistischer Synchronisation
+    private void dbSimulieren() {
+        zeile.set(Fussballverein.builder()
+            .id(ID)
+            .version(0)
+            .name("Verein")
+            .email("verein@acme.de")
+            .plz("76133")
+            .telefonnummer("0721 123456")
+            .build());
+        protokoll.clear();
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+            invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(repo.findById(ID)).thenAnswer(invocation -> Optional.of(kopie(zeile.get())));
+        when(repo.saveAndFlush(any())).thenAnswer(invocation -> {
+            final Fussballverein fussballverein = invocation.getArgument(0);
+            if (fussballverein.getVersion() != zeile.get().getVersion()) {
+                throw new ObjectOptimisticLockingFailureException(Fussballverein.class, ID);
+            }
+            final var gespeichert = kopie(fussballverein);
+            gespeichert.setVersion(fussballverein.getVersion() + 1);
+            zeile.set(gespeichert);
+            return kopie(gespeichert);
+        });
+        when(aenderungRepo.save(any())).thenAnswer(invocation -> {
+            protokoll.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(aenderungRepo.findSeitVersion(any(), anyInt())).thenAnswer(invocation -> {
+            final int version = invocation.getArgument(1);
+            return protokoll.stream()
+                .filter(aenderung -> aenderung.getVersion() > version)
+                .toList();
+        });
+    }
+
+    // Beim ersten Lesen durch den zweiten Schreiber speichert zuerst der erste Schreiber auf Basis von Version 0
+    private void alsParallelerSchreiber(final Fussballverein ersterSchreiber) {
+        final var erstesLesen = new AtomicBoolean(true);
+        when(repo.findById(ID)).thenAnswer(invocation -> {
+            final var gelesen = kopie(zeile.get());
+            if (erstesLesen.getAndSet(false)) {
+                service.updateMerge(ersterSchreiber, ID, 0);
+            }
+            return Optional.of(gelesen);
+        });
+    }
+
+    private static Fussballverein kopie(final Fussballverein fussballverein) {
+        return Fussballverein.builder()
+            .id(fussballverein.getId())
+            .version(fussballverein.getVersion())
+            .name(fussballverein.getName())
+            .email(fussballverein.getEmail())
+            .gruendungsdatum(fussballverein.getGruendungsdatum())
+            .plz(fussballverein.getPlz())
+            .telefonnummer(fussballverein.getTelefonnummer())
+            .build();
+    }
+}
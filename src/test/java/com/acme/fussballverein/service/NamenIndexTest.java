@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.repository.FussballvereinRepository;
+import com.acme.fussballverein.repository.VereinsnameInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Laden des Index der Vereinsnamen, während parallel Vereinsnamen geändert werden.
+ */
+@Tag("unit")
+@Tag("service-read")
+@DisplayName("Index der Vereinsnamen mit Events waehrend des Ladens")
+class NamenIndexTest {
+    private static final UUID ID_VORHANDEN = UUID.randomUUID();
+    private static final UUID ID_NEU = UUID.randomUUID();
+
+    private FussballvereinRepository repo;
+    private NamenIndex namenIndex;
+
+    @BeforeEach
+    void beforeEach() {
+        repo = mock(FussballvereinRepository.class);
+        namenIndex = new NamenIndex(repo, new NamenIndexProperties(true));
+    }
+
+    @Test
+    @DisplayName("Events nach dem Snapshot der Abfrage gehen nicht verloren")
+    void eventsNachSnapshot() {
+        // given: die Abfrage liefert den Stand vor den beiden Events
+        when(repo.findAllNamen()).thenAnswer(invocation -> {
+            namenIndex.onVereinsname(new VereinsnameEvent(ID_NEU, null, "Neuer Verein"));
+            namenIndex.onVereinsname(new VereinsnameEvent(ID_VORHANDEN, "Alter Verein", "Umbenannter Verein"));
+            return List.of(new VereinsnameInfo(ID_VORHANDEN, "Alter Verein"));
+        });
+
+        // when
+        namenIndex.laden();
+
+        // then
+        assertThat(namenIndex.isGeladen()).isTrue();
+        assertThat(namenIndex.find("", 10)).containsExactly("Neuer Verein", "Umbenannter Verein");
+    }
+
+    @Test
+    @DisplayName("Events, die schon im Snapshot enthalten sind, werden nicht doppelt gezaehlt")
+    void eventsImSnapshot() {
+        // given: die Abfrage liefert den Stand nach dem Event
+        when(repo.findAllNamen()).thenAnswer(invocation -> {
+            namenIndex.onVereinsname(new VereinsnameEvent(ID_NEU, null, "Verein"));
+            return List.of(new VereinsnameInfo(ID_VORHANDEN, "Verein"), new VereinsnameInfo(ID_NEU, "Verein"));
+        });
+        namenIndex.laden();
+
+        // when
+        namenIndex.onVereinsname(new VereinsnameEvent(ID_NEU, "Verein", null));
+
+        // then: der Name bleibt fuer den zweiten Verein erhalten
+        assertThat(namenIndex.find("ver", 10)).containsExactly("Verein");
+        namenIndex.onVereinsname(new VereinsnameEvent(ID_VORHANDEN, "Verein", null));
+        assertThat(namenIndex.find("ver", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deaktivierter Index: Autovervollstaendigung ueber die DB")
+    void deaktiviert() {
+        // given
+        namenIndex = new NamenIndex(repo, new NamenIndexProperties(false));
+
+        // when
+        namenIndex.laden();
+
+        // then
+        assertThat(namenIndex.isGeladen()).isFalse();
+    }
+}
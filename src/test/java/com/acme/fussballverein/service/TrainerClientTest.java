@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.acme.fussballverein.service;
+
+import com.acme.fussballverein.repository.TrainerProperties;
+import com.acme.fussballverein.repository.TrainerReactiveRepository;
+import com.acme.fussballverein.repository.TrainerRestRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.graphql.client.HttpGraphQlClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Zugriff auf den Microservice "Trainer", wenn dieser nicht antwortet: Deadline, Semaphor, Bulkhead und Circuit
+ * Breaker dürfen durch einen hängenden Request nicht dauerhaft blockiert werden.
+ */
+@Tag("unit")
+@Tag("service-read")
+@DisplayName("TrainerClient mit einem haengenden Microservice Trainer")
+class TrainerClientTest {
+    private static final Duration DEADLINE = Duration.ofMillis(300);
+    private static final Duration MAX_DAUER = Duration.ofSeconds(2);
+    private static final String ANTWORT = """
+        {"data": {"t0": {"name": "Stub", "email": "stub@acme.com"}}}
+        """;
+
+    private final AtomicBoolean haengen = new AtomicBoolean(true);
+    private final Queue<HttpExchange> haengendeRequests = new ConcurrentLinkedQueue<>();
+    private HttpServer stub;
+    private CircuitBreaker circuitBreaker;
+    private TrainerClient trainerClient;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        haengen.set(true);
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stub.createContext("/graphql", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (haengen.get()) {
+                // keine Antwort: die Verbindung bleibt offen, bis der Client den Request abbricht
+                haengendeRequests.add(exchange);
+                return;
+            }
+            final var body = ANTWORT.getBytes(UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+
+        final var graphQlClient = HttpGraphQlClient.create(
+            WebClient.create("http://localhost:" + stub.getAddress().getPort() + "/graphql")
+        );
+        // max-concurrency 1 und 1 Permit im Bulkhead: schon ein einziges verlorenes Permit blockiert alles
+        final var props = new TrainerProperties(100, Duration.ofMinutes(5), Duration.ofHours(1), 1, DEADLINE, 1);
+        final var circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowSize(2)
+            .minimumNumberOfCalls(2)
+            .failureRateThreshold(50)
+            .build());
+        final var bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+            .maxConcurrentCalls(1)
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("trainer");
+        trainerClient = new TrainerClient(
+            mock(TrainerRestRepository.class),
+            mock(TrainerReactiveRepository.class),
+            graphQlClient,
+            props,
+            new SimpleMeterRegistry(),
+            new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()),
+            circuitBreakerRegistry,
+            bulkheadRegistry
+        );
+    }
+
+    @AfterEach
+    void afterEach() {
+        haengendeRequests.forEach(HttpExchange::close);
+        stub.stop(0);
+    }
+
+    @Test
+    @DisplayName("Nach einem haengenden Request sind Semaphor und Bulkhead wieder frei")
+    void permitsFreigegeben() {
+        // given
+        final var start = System.nanoTime();
+
+        // when
+        final var ergebnis = trainerClient.findByIds(List.of(UUID.randomUUID()));
+
+        // then
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(MAX_DAUER);
+        assertThat(ergebnis.values()).allSatisfy(trainer -> assertThat(trainer.name()).isEqualTo("N/A"));
+
+        // given
+        haengen.set(false);
+        final var id = UUID.randomUUID();
+
+        // when: der naechste Request erhaelt wieder Permits und damit die Daten von "trainer"
+        final var trainer = trainerClient.findByIds(List.of(id)).get(id);
+
+        // then
+        assertThat(trainer.name()).isEqualTo("Stub");
+        assertThat(trainer.email()).isEqualTo("stub@acme.com");
+    }
+
+    @Test
+    @DisplayName("Der Circuit Breaker zaehlt haengende Requests als Fehler und oeffnet")
+    void circuitBreakerOeffnet() throws InterruptedException {
+        // when
+        trainerClient.findByIds(List.of(UUID.randomUUID()));
+        trainerClient.findByIds(List.of(UUID.randomUUID()));
+
+        // then: die Worker melden den Timeout kurz nach der Deadline an den Circuit Breaker
+        final var ende = System.nanoTime() + MAX_DAUER.toNanos();
+        while (circuitBreaker.getState() != CircuitBreaker.State.OPEN && System.nanoTime() < ende) {
+            Thread.sleep(10);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isEqualTo(2);
+    }
+}
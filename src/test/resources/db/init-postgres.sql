@@ -0,0 +1,25 @@
+-- Copyright (C) 2022 - present Juergen Zimmermann, Hochschule Karlsruhe
+--
+-- This program is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- This program is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+-- Entspricht create-db-fussballverein.sql und create-schema-fussballverein.sql fuer den PostgreSQL-Container der
+-- Integrationstests. Der Tablespace liegt "in place" unterhalb von pg_tblspc, weil es im Container kein
+-- vorbereitetes Verzeichnis gibt: https://www.postgresql.org/docs/current/runtime-config-developer.html
+
+SET allow_in_place_tablespaces = true;
+CREATE TABLESPACE fussballvereinspace LOCATION '';
+
+CREATE SCHEMA IF NOT EXISTS AUTHORIZATION fussballverein;
+
+ALTER ROLE fussballverein SET search_path = 'fussballverein';